@@ -0,0 +1,88 @@
+package environments;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import parser.ast.Ident;
+import parser.ast.SimpleIdent;
+
+/*
+ * measures the scope levels of a loop as Eval and TypeCheck use them with
+ * GenEnvironment and PooledEnvironment: each iteration enters a level,
+ * declares the loop variable and a local one, reads and updates an outer
+ * variable, and exits the level; the payloads are preallocated, hence only
+ * the environment allocates; both the time and the bytes allocated by
+ * the best run are reported, the latter if the JVM can measure them
+ * usage: EnvironmentBenchmark [iterations [runs]]
+ */
+
+public class EnvironmentBenchmark {
+
+	private static final Ident outer = new SimpleIdent("outer"), x = new SimpleIdent("x"), y = new SimpleIdent("y");
+
+	private static final Integer[] payloads = new Integer[1024];
+
+	static {
+		for (int i = 0; i < payloads.length; i++)
+			payloads[i] = i;
+	}
+
+	private static Integer payload(int value) {
+		return payloads[value & payloads.length - 1];
+	}
+
+	private static int loop(Environment<Integer> env, int iterations) {
+		env.dec(outer, payload(0));
+		for (int i = 0; i < iterations; i++) {
+			env.enterLevel();
+			env.dec(x, payload(i));
+			env.dec(y, payload(i & 7));
+			env.update(outer, payload(env.lookup(outer) + env.lookup(y)));
+			env.exitLevel();
+		}
+		return env.lookup(outer);
+	}
+
+	/* the bytes allocated so far by the current thread, or -1 if not supported */
+	private static long allocated() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+		return -1;
+	}
+
+	private interface Factory {
+		Environment<Integer> create();
+	}
+
+	private static void measure(String name, Factory factory, int iterations, int runs) {
+		long best = Long.MAX_VALUE, bytes = -1;
+		int result = 0;
+		for (int i = 0; i < runs; i++) {
+			Environment<Integer> env = factory.create();
+			long before = allocated(), start = System.nanoTime();
+			result = loop(env, iterations);
+			long time = System.nanoTime() - start, after = allocated();
+			if (time < best) {
+				best = time;
+				bytes = before < 0 ? -1 : after - before;
+			}
+		}
+		out.println(name + ": best of " + runs + ": " + best / 1000 + " us, " + best / iterations + " ns/iteration"
+				+ (bytes < 0 ? "" : ", " + bytes / iterations + " bytes/iteration") + " (" + result + ")");
+	}
+
+	public static void main(String[] args) {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		try {
+			measure("GenEnvironment", GenEnvironment::new, iterations, runs);
+			measure("PooledEnvironment", PooledEnvironment::new, iterations, runs);
+		} catch (Throwable e) {
+			err.println("Unexpected error. " + e.getMessage());
+		}
+	}
+}
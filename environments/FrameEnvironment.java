@@ -0,0 +1,92 @@
+package environments;
+
+import java.util.Arrays;
+
+import parser.ast.Ident;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * environment addressed by the lexical addresses of the identifiers, set by
+ * the static resolver; each scope level is an array frame indexed by slot,
+ * hence lookups and updates are two array indexings with no hashing
+ *
+ * the frame of a level is kept when the level is exited and reused by the
+ * next level at the same depth, since a resolved variable is never read
+ * before being declared in the current frame
+ */
+
+public class FrameEnvironment<T> implements Environment<T> {
+
+	private static final int FRAME_SIZE = 4;
+
+	/* the frames of the scope levels; the most nested one is frames[depth] */
+	private Object[][] frames = new Object[8][];
+	private int depth = -1;
+
+	/* create an environment with just one empty scope */
+	public FrameEnvironment() {
+		enterLevel();
+	}
+
+	private FrameEnvironment(Object[][] frames, int depth) {
+		this.frames = frames;
+		this.depth = depth;
+	}
+
+	/*
+	 * an environment sharing the frames of the current levels, whose deeper
+	 * levels have their own frames; the shared frames must only be read while
+	 * both environments are in use
+	 */
+	public FrameEnvironment<T> fork() {
+		Object[][] shared = new Object[frames.length][];
+		System.arraycopy(frames, 0, shared, 0, depth + 1);
+		return new FrameEnvironment<>(shared, depth);
+	}
+
+	@Override
+	public void enterLevel() {
+		if (++depth == frames.length)
+			frames = Arrays.copyOf(frames, 2 * depth);
+		if (frames[depth] == null)
+			frames[depth] = new Object[FRAME_SIZE];
+	}
+
+	@Override
+	public void exitLevel() {
+		depth--;
+	}
+
+	private static EnvironmentException unresolved(Ident id) {
+		return new EnvironmentException("Unresolved variable " + id.getName());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T lookup(Ident id) {
+		if (id.getDepth() < 0)
+			throw unresolved(id);
+		return (T) frames[id.getDepth()][id.getSlot()];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T dec(Ident id, T payload) {
+		if (id.getDepth() < 0)
+			throw unresolved(id);
+		Object[] frame = frames[id.getDepth()];
+		int slot = id.getSlot();
+		if (slot >= frame.length)
+			frames[id.getDepth()] = frame = Arrays.copyOf(frame, Math.max(2 * frame.length, slot + 1));
+		T previous = (T) frame[slot];
+		frame[slot] = requireNonNull(payload);
+		return previous;
+	}
+
+	/* the variable is resolved to its declaration, hence updating it is the same as declaring it */
+	@Override
+	public T update(Ident id, T payload) {
+		return dec(id, payload);
+	}
+}
@@ -1,8 +1,6 @@
 package environments;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Arrays;
 
 import parser.ast.Ident;
 
@@ -10,14 +8,26 @@ import static java.util.Objects.requireNonNull;
 
 public class GenEnvironment<T> implements Environment<T> {
 
-	private LinkedList<Map<Ident, T>> scopeLevels = new LinkedList<>();
+	/*
+	 * the scope levels, keyed by the ids of the identifiers; the most nested one
+	 * is scopeLevels[depth - 1]
+	 */
+	private SymbolMap<T>[] scopeLevels = newLevels(8);
+	private int depth;
+
+	@SuppressWarnings("unchecked")
+	private static <T> SymbolMap<T>[] newLevels(int length) {
+		return (SymbolMap<T>[]) new SymbolMap<?>[length];
+	}
 
 	/*
 	 * enter a new nested scope; private method shared by enterLevel() and the
 	 * constructor GenEnvironment()
 	 */
 	private void addEmptyLevel() {
-		scopeLevels.addFirst(new HashMap<>());
+		if (depth == scopeLevels.length)
+			scopeLevels = Arrays.copyOf(scopeLevels, 2 * depth);
+		scopeLevels[depth++] = new SymbolMap<>();
 	}
 
 	/* create an environment with just one empty scope */
@@ -32,7 +42,7 @@ public class GenEnvironment<T> implements Environment<T> {
 
 	@Override
 	public void exitLevel() {
-		scopeLevels.removeFirst();
+		scopeLevels[--depth] = null;
 	}
 
 	/*
@@ -40,35 +50,46 @@ public class GenEnvironment<T> implements Environment<T> {
 	 * if no scope could be found
 	 */
 
-	protected Map<Ident, T> resolve(Ident id) {
-		for (Map<Ident, T> locEnv : scopeLevels)
-			if (locEnv.containsKey(id))
-				return locEnv;
-		throw new EnvironmentException("Undeclared variable " + id.getName());
+	private SymbolMap<T> resolve(Ident id) {
+		int key = id.getId();
+		for (int level = depth - 1; level >= 0; level--)
+			if (scopeLevels[level].get(key) != null)
+				return scopeLevels[level];
+		throw undeclared(id);
+	}
+
+	private static EnvironmentException undeclared(Ident id) {
+		return new EnvironmentException("Undeclared variable " + id.getName());
 	}
 
 	@Override
 	public T lookup(Ident id) {
-		return resolve(id).get(id);
+		int key = id.getId();
+		for (int level = depth - 1; level >= 0; level--) { // a single probe per level
+			T payload = scopeLevels[level].get(key);
+			if (payload != null)
+				return payload;
+		}
+		throw undeclared(id);
 	}
 
 	/*
 	 * updates map to associate id with payload; id and payload must be non-null
 	 */
 
-	private static <T> T updateLevel(Map<Ident, T> map, Ident id, T payload) {
-		return map.put(requireNonNull(id), requireNonNull(payload));
+	private static <T> T updateLevel(SymbolMap<T> map, Ident id, T payload) {
+		return map.put(requireNonNull(id).getId(), requireNonNull(payload));
 	}
 
 	@Override
 	public T dec(Ident id, T payload) {
-		Map<Ident, T> mostNestedScopeLevel = scopeLevels.get(0);
+		SymbolMap<T> mostNestedScopeLevel = scopeLevels[depth - 1];
 		return updateLevel(mostNestedScopeLevel, id, payload);
 	}
 
 	@Override
 	public T update(Ident id, T payload) {
-		Map<Ident, T> scopeLevelOfId = resolve(id);
+		SymbolMap<T> scopeLevelOfId = resolve(id);
 		return updateLevel(scopeLevelOfId, id, payload);
 	}
 
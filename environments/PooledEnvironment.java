@@ -0,0 +1,99 @@
+package environments;
+
+import java.util.Arrays;
+
+import parser.ast.Ident;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * environment keyed by the ids of the identifiers, as GenEnvironment, whose
+ * scope levels are recycled: an exited level is cleared and kept in a pool
+ * owned by the environment, and taken back by the next level entered, hence
+ * entering and exiting a level allocates nothing once the pool holds a map
+ * for each depth reached; clearing an exited level also drops its payloads
+ */
+
+public class PooledEnvironment<T> implements Environment<T> {
+
+	/* the scope levels; the most nested one is scopeLevels[depth - 1] */
+	private SymbolMap<T>[] scopeLevels = newLevels(8);
+	private int depth;
+
+	/* the cleared maps of the exited levels; the most recently exited one is pool[pooled - 1] */
+	private SymbolMap<T>[] pool = newLevels(8);
+	private int pooled;
+
+	@SuppressWarnings("unchecked")
+	private static <T> SymbolMap<T>[] newLevels(int length) {
+		return (SymbolMap<T>[]) new SymbolMap<?>[length];
+	}
+
+	/* create an environment with just one empty scope */
+	public PooledEnvironment() {
+		enterLevel();
+	}
+
+	@Override
+	public void enterLevel() {
+		if (depth == scopeLevels.length)
+			scopeLevels = Arrays.copyOf(scopeLevels, 2 * depth);
+		if (pooled > 0) {
+			scopeLevels[depth++] = pool[--pooled];
+			pool[pooled] = null;
+		} else
+			scopeLevels[depth++] = new SymbolMap<>();
+	}
+
+	@Override
+	public void exitLevel() {
+		SymbolMap<T> level = scopeLevels[--depth];
+		scopeLevels[depth] = null;
+		level.clear();
+		if (pooled == pool.length)
+			pool = Arrays.copyOf(pool, 2 * pooled);
+		pool[pooled++] = level;
+	}
+
+	/*
+	 * looks up the most nested scope level defining id; throws EnvironmentException
+	 * if no scope could be found
+	 */
+
+	private SymbolMap<T> resolve(Ident id) {
+		int key = id.getId();
+		for (int level = depth - 1; level >= 0; level--)
+			if (scopeLevels[level].get(key) != null)
+				return scopeLevels[level];
+		throw undeclared(id);
+	}
+
+	private static EnvironmentException undeclared(Ident id) {
+		return new EnvironmentException("Undeclared variable " + id.getName());
+	}
+
+	@Override
+	public T lookup(Ident id) {
+		int key = id.getId();
+		for (int level = depth - 1; level >= 0; level--) {
+			T payload = scopeLevels[level].get(key);
+			if (payload != null)
+				return payload;
+		}
+		throw undeclared(id);
+	}
+
+	private static <T> T updateLevel(SymbolMap<T> map, Ident id, T payload) {
+		return map.put(requireNonNull(id).getId(), requireNonNull(payload));
+	}
+
+	@Override
+	public T dec(Ident id, T payload) {
+		return updateLevel(scopeLevels[depth - 1], id, payload);
+	}
+
+	@Override
+	public T update(Ident id, T payload) {
+		return updateLevel(resolve(id), id, payload);
+	}
+}
@@ -0,0 +1,67 @@
+package environments;
+
+import java.util.Arrays;
+
+/*
+ * scope level mapping the ids of identifiers to non-null payloads; open
+ * addressing with linear probing on int keys, hence lookups do not hash any
+ * String and do not allocate
+ */
+
+class SymbolMap<T> {
+	private static final int INITIAL_CAPACITY = 8; // must be a power of 2
+
+	private int[] keys = new int[INITIAL_CAPACITY]; // id + 1, or 0 for free slots
+	private Object[] values = new Object[INITIAL_CAPACITY];
+	private int size;
+
+	private int indexOf(int id) {
+		int mask = keys.length - 1;
+		int i = id & mask;
+		while (keys[i] != 0 && keys[i] != id + 1)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	/* returns the payload of id, or null if id is not defined */
+	@SuppressWarnings("unchecked")
+	T get(int id) {
+		return (T) values[indexOf(id)];
+	}
+
+	/* associates id with payload; returns the previous payload, or null */
+	@SuppressWarnings("unchecked")
+	T put(int id, T payload) {
+		int i = indexOf(id);
+		T previous = (T) values[i];
+		values[i] = payload;
+		if (keys[i] == 0) {
+			keys[i] = id + 1;
+			if (2 * ++size > keys.length) // keeps the load factor below 1/2
+				rehash();
+		}
+		return previous;
+	}
+
+	/* removes every id, keeping the capacity, hence the map can be reused with no allocation */
+	void clear() {
+		if (size == 0)
+			return;
+		Arrays.fill(keys, 0);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	private void rehash() {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[2 * oldKeys.length];
+		values = new Object[2 * oldValues.length];
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != 0) {
+				int j = indexOf(oldKeys[i] - 1);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+	}
+}
@@ -0,0 +1,54 @@
+package interpreter;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+
+import java.io.PrintWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+
+import parser.ast.Prog;
+import visitors.bytecode.Compiler;
+import visitors.bytecode.VM;
+import visitors.closure.ClosureCompiler;
+import visitors.evaluation.Eval;
+import visitors.evaluation.TypedEval;
+import visitors.jit.JitCompiler;
+import visitors.specialization.NodeBuilder;
+
+/* checks that every test program prints the same output with Eval and with each alternative engine */
+
+public class EngineTest {
+
+	private static int failed;
+
+	private static void check(String name, BiConsumer<Prog, PrintWriter> engine) {
+		for (String source : TestPrograms.PROGRAMS)
+			try {
+				String expected = TestPrograms.run(source, prog -> prog);
+				String found = TestPrograms.execute(source, engine);
+				if (!found.equals(expected)) {
+					failed++;
+					err.println("Failed with " + name + ": " + source + "\nexpected:\n" + expected + "found:\n" + found);
+				}
+			} catch (Throwable e) {
+				failed++;
+				err.println("Unexpected error with " + name + ". " + source);
+				e.printStackTrace();
+			}
+	}
+
+	public static void main(String[] args) {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		check("typed", (prog, p) -> prog.accept(new TypedEval(p)));
+		check("parallel for", (prog, p) -> prog.accept(new Eval(p, Eval.OFF_HEAP_THRESHOLD, null, pool)));
+		check("nodes", (prog, p) -> NodeBuilder.build(prog, p).run());
+		check("closure", (prog, p) -> ClosureCompiler.compile(prog, p).run());
+		check("vm", (prog, p) -> new VM(p).run(Compiler.compile(prog)));
+		check("jit", (prog, p) -> JitCompiler.compile(prog).run(p));
+		pool.shutdown();
+		out.println(failed == 0 ? "all engines passed" : failed + " failures");
+		if (failed > 0)
+			System.exit(1);
+	}
+}
@@ -2,42 +2,258 @@ package interpreter;
 
 import static java.lang.System.err;
 
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
-import parser.Parser;
+import parser.DfaTokenizer;
+import parser.MappedSource;
+import parser.PackedTokenizer;
+import parser.ParallelLexer;
 import parser.ParserException;
+import parser.ReaderSource;
 import parser.StreamParser;
 import parser.StreamTokenizer;
+import parser.TokenBuffer;
 import parser.Tokenizer;
 import parser.ast.Prog;
+import parser.ast.Stmt;
+import visitors.bytecode.Code;
+import visitors.bytecode.Compiler;
+import visitors.bytecode.VM;
+import visitors.closure.ClosureCompiler;
 import visitors.evaluation.Eval;
 import visitors.evaluation.EvaluatorException;
+import visitors.evaluation.TypedEval;
+import visitors.evaluation.ValueFactory;
+import visitors.jit.JitCompiler;
+import visitors.jit.JitException;
+import visitors.optimization.ConstantFolder;
+import visitors.optimization.DeadCodeEliminator;
+import visitors.serialization.ProgReader;
+import visitors.serialization.ProgWriter;
+import visitors.specialization.NodeBuilder;
 import visitors.typechecking.TypeCheck;
 import visitors.typechecking.TypecheckerException;
 
+/*
+ * usage: Main [-i source] [-o output] [options]
+ *        Main -c source -o binary [options]   compiles source into a precompiled program
+ *        Main -b binary [-i source] [-o output]   runs a precompiled program, checking it
+ *                                                 is up to date with source, or else with
+ *                                                 the source it was compiled from, if it
+ *                                                 still exists
+ *
+ * with -stream each top-level statement is type checked and executed as soon
+ * as it is parsed, hence memory is bounded by the largest statement and output
+ * starts immediately; the trade-off is that syntax and static errors are
+ * reported only when their statement is reached, after the output of all the
+ * statements before it, while by default no statement is executed if the
+ * program contains any such error; with -O dead code elimination needs the
+ * whole program, hence streamed statements are only constant folded, and are
+ * always executed by Eval
+ */
+
 public class Main {
+	private static String in, out, bin, engine = "eval";
+	private static int offHeapThreshold = Eval.OFF_HEAP_THRESHOLD;
+	private static boolean compile, dfa, intern, optimize, packed, parallel, parallelFor, stream, time, verbose;
+
+	/* the hand-written lexer reads input files in place through a memory mapping */
+	private static Tokenizer newTokenizer(String in, boolean dfa) throws IOException {
+		if (!dfa)
+			return new StreamTokenizer(in != null ? new FileReader(in) : new InputStreamReader(System.in));
+		return new DfaTokenizer(in != null ? new MappedSource(in) : new ReaderSource(new InputStreamReader(System.in)));
+	}
+
+	/* lexes the whole input before parsing, in parallel if required for input files */
+	private static Tokenizer pack() throws Exception {
+		long start = System.nanoTime();
+		TokenBuffer tokens;
+		if (parallel && in != null)
+			tokens = ParallelLexer.tokenize(new MappedSource(in));
+		else
+			try (DfaTokenizer tokenizer = (DfaTokenizer) newTokenizer(in, true)) {
+				tokens = tokenizer.tokenizeAll();
+			}
+		if (time)
+			report("lexing " + tokens.size() + " tokens", start);
+		return new PackedTokenizer(tokens);
+	}
+
+	private static void report(String phase, long start) {
+		err.println(phase + ": " + (System.nanoTime() - start) / 1_000_000 + " ms");
+	}
+
+	/* parses and type checks the source program */
+	private static Prog parse() throws Exception {
+		Prog prog;
+		try (Tokenizer tokenizer = packed ? pack() : newTokenizer(in, dfa)) {
+			long start = System.nanoTime();
+			prog = new StreamParser(tokenizer).parseProg();
+			if (time)
+				report("parsing", start);
+		}
+		prog.accept(new TypeCheck());
+		return optimize ? optimize(prog) : prog;
+	}
+
+	private static Prog optimize(Prog prog) {
+		DeadCodeEliminator eliminator = new DeadCodeEliminator();
+		prog = eliminator.rewrite(ConstantFolder.fold(prog));
+		if (verbose)
+			err.println(eliminator.report());
+		return prog;
+	}
+
+	/* reads the precompiled program, with no lexing, parsing and type checking */
+	private static Prog load() throws IOException {
+		long start = System.nanoTime();
+		Prog prog = ProgReader.read(Path.of(bin), in != null ? Path.of(in) : null);
+		if (time)
+			report("loading", start);
+		return prog;
+	}
+
+	/* parses, type checks and executes one top-level statement at a time */
+	private static void stream(PrintWriter p) throws Exception {
+		try (Tokenizer tokenizer = packed ? pack() : newTokenizer(in, dfa)) {
+			StreamParser parser = new StreamParser(tokenizer);
+			TypeCheck typeCheck = new TypeCheck();
+			try (Eval eval = new Eval(p, offHeapThreshold, values(), pool())) {
+				Stmt stmt;
+				while ((stmt = parser.parseNextStmt()) != null) {
+					typeCheck.checkTopStmt(stmt);
+					eval.evalTopStmt(optimize ? ConstantFolder.foldStmt(stmt) : stmt);
+				}
+			}
+		}
+	}
+
+	private static ValueFactory values() {
+		return intern ? new ValueFactory() : null;
+	}
+
+	private static ForkJoinPool pool() {
+		return parallelFor ? ForkJoinPool.commonPool() : null;
+	}
+
+	/* executes the program with the selected engine */
+	private static void execute(Prog prog, PrintWriter p) {
+		long start = System.nanoTime();
+		switch (engine) {
+		case "jit":
+			JitCompiler.Script script;
+			try {
+				script = JitCompiler.compile(prog);
+			} catch (JitException e) { // the limits of class files are exceeded
+				if (verbose)
+					err.println(e.getMessage() + ", falling back to the VM");
+				engine = "vm";
+				execute(prog, p);
+				return;
+			}
+			if (time)
+				report("compiling to a JVM class", start);
+			script.run(p);
+			break;
+		case "typed":
+			if (optimize || bin != null) // the nodes of rewritten and loaded programs are not annotated
+				prog.accept(new TypeCheck());
+			prog.accept(new TypedEval(p, offHeapThreshold, values(), pool()));
+			break;
+		case "nodes":
+			Runnable tree = NodeBuilder.build(prog, p);
+			if (time)
+				report("building self-specializing nodes", start);
+			tree.run();
+			break;
+		case "closure":
+			Runnable closure = ClosureCompiler.compile(prog, p);
+			if (time)
+				report("compiling to closures", start);
+			closure.run();
+			break;
+		case "vm":
+			Code code = Compiler.compile(prog);
+			if (time)
+				report("compiling " + code.size() + " words of bytecode", start);
+			new VM(p).run(code);
+			break;
+		default:
+			prog.accept(new Eval(p, offHeapThreshold, values(), pool()));
+		}
+	}
+
+	private static void compile(Prog prog) throws IOException {
+		try (OutputStream binary = new BufferedOutputStream(new FileOutputStream(out))) {
+			ProgWriter.write(prog, Path.of(in), binary);
+		}
+	}
+
 	public static void main(String[] args) {
-		boolean fileIn = false, fileOut = false;
-		String in = null, out = null;
-          for (int i = 0; i < args.length; i++) {
-              if (args[i].equals("-i")) {
-            	  in = new String(args[++i]);
-            	  fileIn=true;
-              }
-              if (args[i].equals("-o")) {
-            	  out = new String(args[++i]);
-            	  fileOut=true;
-              }
-          }
-          try (Tokenizer tokenizer = (Tokenizer) new StreamTokenizer(fileIn ? new FileReader(in) : new InputStreamReader(System.in));
-        		  PrintWriter p = (fileOut)? new PrintWriter(out): new PrintWriter(System.out, true)) {
-        Parser parser = new StreamParser(tokenizer);
-        Prog prog = parser.parseProg();
-  		prog.accept(new TypeCheck());
-        prog.accept(new Eval(p));
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-i"))
+				in = args[++i];
+			if (args[i].equals("-o"))
+				out = args[++i];
+			if (args[i].equals("-c")) { // compiles the source into a precompiled program
+				in = args[++i];
+				compile = true;
+			}
+			if (args[i].equals("-b")) // runs a precompiled program
+				bin = args[++i];
+			if (args[i].equals("-dfa")) // hand-written lexer instead of the regex-based one
+				dfa = true;
+			if (args[i].equals("-packed")) // lexes the whole input before parsing, implies -dfa
+				packed = true;
+			if (args[i].equals("-parallel")) // lexes input files in parallel, implies -packed
+				packed = parallel = true;
+			if (args[i].equals("-O")) // folds constants and eliminates dead code after type checking
+				optimize = true;
+			if (args[i].equals("-v")) // reports what the optimizations eliminated, and fallbacks between engines
+				verbose = true;
+			if (args[i].equals("-stream")) // executes each top-level statement as soon as it is parsed
+				stream = true;
+			if (args[i].equals("-engine")) // eval, the default, typed, nodes, closure, vm or jit
+				engine = args[++i];
+			if (args[i].equals("-time")) // reports the time spent in each phase
+				time = true;
+			if (args[i].equals("-offheap")) // the length from which eval stores lists of ints and bools off the heap
+				offHeapThreshold = Integer.parseInt(args[++i]);
+			if (args[i].equals("-intern")) // eval hash-conses lists and opts, which are then compared by reference
+				intern = true;
+			if (args[i].equals("-parallelfor")) // eval runs the iterations of loops assigning no outer variable in parallel
+				parallelFor = true;
+		}
+		if (!List.of("eval", "typed", "nodes", "closure", "vm", "jit").contains(engine)) {
+			err.println("Unknown engine " + engine);
+			return;
+		}
+		try {
+			if (compile) {
+				if (out == null)
+					throw new IOException("Missing output file for the precompiled program");
+				compile(parse());
+				return;
+			}
+			if (stream && bin == null) {
+				try (PrintWriter p = out != null ? new PrintWriter(out) : new PrintWriter(System.out, true)) {
+					stream(p);
+				}
+				return;
+			}
+			Prog prog = bin != null ? load() : parse();
+			try (PrintWriter p = out != null ? new PrintWriter(out) : new PrintWriter(System.out, true)) {
+				execute(prog, p);
+			}
 		} catch (ParserException e) {
 			err.println("Syntax error: " + e.getMessage());
 		} catch (IOException e) {
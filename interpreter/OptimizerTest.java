@@ -0,0 +1,35 @@
+package interpreter;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+
+import visitors.optimization.ConstantFolder;
+import visitors.optimization.DeadCodeEliminator;
+
+/* checks that every test program prints the same output with and without the optimizations */
+
+public class OptimizerTest {
+
+	public static void main(String[] args) {
+		int failed = 0;
+		for (String source : TestPrograms.PROGRAMS)
+			try {
+				String expected = TestPrograms.run(source, prog -> prog);
+				String folded = TestPrograms.run(source, ConstantFolder::fold);
+				String eliminated = TestPrograms.run(source,
+						prog -> DeadCodeEliminator.eliminate(ConstantFolder.fold(prog)));
+				if (!folded.equals(expected) || !eliminated.equals(expected)) {
+					failed++;
+					err.println("Failed: " + source + "\nexpected:\n" + expected + "found:\n" + folded
+							+ "after dead code elimination:\n" + eliminated);
+				}
+			} catch (Throwable e) {
+				failed++;
+				err.println("Unexpected error. " + source);
+				e.printStackTrace();
+			}
+		out.println((TestPrograms.PROGRAMS.length - failed) + "/" + TestPrograms.PROGRAMS.length + " programs passed");
+		if (failed > 0)
+			System.exit(1);
+	}
+}
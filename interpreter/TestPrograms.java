@@ -0,0 +1,65 @@
+package interpreter;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+import parser.StreamParser;
+import parser.StreamTokenizer;
+import parser.Tokenizer;
+import parser.ast.Prog;
+import visitors.evaluation.Eval;
+import visitors.evaluation.EvaluatorException;
+import visitors.typechecking.TypeCheck;
+
+/*
+ * well-typed programs shared by the tests which compare an alternative
+ * pipeline against the plain evaluation of the same program; the last ones
+ * end with a dynamic error, which must be raised after the same output
+ */
+
+class TestPrograms {
+
+	static final String[] PROGRAMS = {
+			"var x = 0b101 + 3 * 4; var l = [1, 2, 3]; var b = true && !false; print x; print l; print b;"
+					+ "for y : 0 :: l { print y * 2 }; print -x + 7",
+			"var o = opt 5; print o; print def o; print get o; print empty o; print def empty o;"
+					+ "print get opt (1 + 2); print def opt [1]; print def empty opt true",
+			"var x = 3; print x + 0; print 0 + x; print x * 1; print 1 * x; print x * 0; print 0 * x;"
+					+ "print x == x; print --x; print !!(x == 3); print 2 * 3 + 4 * 5 == 26",
+			"var b = false; print true && b; print b && true; print false && b; print b && false;"
+					+ "print true == !b; print [1, 2] == 1 :: [2]; print 1 :: [2, 3] == [1]",
+			"var i = 0; do { i = i + 1; print i } while !(i == 3); if i == 3 { print 1 } else { print 0 };"
+					+ "if 1 + 1 == 2 { var i = 5; print i }; print i; if false { print 7 }",
+			"var ll = [[1], [2, 3]]; print ll == [[1], [2, 3]]; var s = 0;"
+					+ "for l : ll { for x : l { s = s + x * 1 } }; print s; print [opt 1, empty opt 2]",
+			"var u = 1; var w = opt 2; u = u + 1; w = empty w; if true { var v = 3; print v } else { print 4 };"
+					+ "if false { print 5 }; do { print 6 } while false; do { var d = 7; print d } while 1 == 2;"
+					+ "var z = 0; if 2 == 2 { z = z + 1 }; print z; for x : [1, 2] { var y = x; print x }",
+			"var e = empty opt 1; var n = get e; n = 1; print 0",
+			"var e = empty opt 1; print 0 * 0; print false && get e == 1; print 0 * get e",
+			"var e = empty opt 1; print 1; print get e * 0",
+			"var e = empty opt 1; print def opt get e",
+	};
+
+	/* runs the program transformed after type checking, and returns its output and dynamic error */
+	static String run(String source, UnaryOperator<Prog> transform) throws Exception {
+		return execute(source, (prog, p) -> transform.apply(prog).accept(new Eval(p)));
+	}
+
+	/* executes the type checked program with the given engine, and returns its output and dynamic error */
+	static String execute(String source, BiConsumer<Prog, PrintWriter> engine) throws Exception {
+		StringWriter output = new StringWriter();
+		try (Tokenizer tokenizer = new StreamTokenizer(new StringReader(source));
+				PrintWriter p = new PrintWriter(output)) {
+			Prog prog = new StreamParser(tokenizer).parseProg();
+			prog.accept(new TypeCheck());
+			engine.accept(prog, p);
+		} catch (EvaluatorException e) {
+			output.write("Dynamic error: " + e.getMessage() + "\n");
+		}
+		return output.toString();
+	}
+}
@@ -0,0 +1,430 @@
+package parser;
+
+import static parser.TokenType.*;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/*
+ * hand-written tokenizer recognizing the same language as StreamTokenizer
+ * with a character-level automaton reading a Source instead of a regular
+ * expression matched line by line; keywords
+ * are recognized by a perfect hash on (first char, last char, length), numbers
+ * are converted while they are scanned and identifiers are interned in
+ * SymbolTable directly from the source; no String is created for symbols,
+ * keywords, numbers and already interned identifiers (tokenString() of a number
+ * is built on demand)
+ */
+
+public class DfaTokenizer implements Tokenizer {
+	private static final int EOS = Source.EOS;
+	private static final long OUT_OF_RANGE = Integer.MAX_VALUE + 1L; // saturated value of too large literals
+
+	// character classes for ASCII characters; any other character is OTHER
+	private static final byte OTHER = 0, LETTER = 1, DIGIT = 2, SPACE = 3;
+	private static final byte[] charClass = new byte[128];
+
+	// perfect hash table for keywords, see keywordIndex()
+	private static final int KEYWORD_TABLE_SIZE = 32;
+	private static final String[] keywordText = new String[KEYWORD_TABLE_SIZE];
+	private static final TokenType[] keywordType = new TokenType[KEYWORD_TABLE_SIZE];
+
+	// the text of symbols and keywords other than BOOL, indexed by the ordinal of their token type
+	private static final String[] tokenText = new String[TokenType.values().length];
+
+	static {
+		for (int c = 'a'; c <= 'z'; c++)
+			charClass[c] = LETTER;
+		for (int c = 'A'; c <= 'Z'; c++)
+			charClass[c] = LETTER;
+		for (int c = '0'; c <= '9'; c++)
+			charClass[c] = DIGIT;
+		for (char c : " \t\n\u000B\f\r".toCharArray()) // same as \s in regular expressions
+			charClass[c] = SPACE;
+	}
+
+	static {
+		addKeyword("for", FOR);
+		addKeyword("print", PRINT);
+		addKeyword("var", VAR);
+		addKeyword("while", WHILE);
+		addKeyword("do", DO);
+		addKeyword("if", IF);
+		addKeyword("else", ELSE);
+		addKeyword("opt", OPT);
+		addKeyword("empty", EMPTY);
+		addKeyword("def", DEF);
+		addKeyword("get", GET);
+		addKeyword("true", BOOL);
+		addKeyword("false", BOOL);
+	}
+
+	static {
+		tokenText[PLUS.ordinal()] = "+";
+		tokenText[TIMES.ordinal()] = "*";
+		tokenText[PREFIX.ordinal()] = "::";
+		tokenText[IN.ordinal()] = ":";
+		tokenText[OPEN_PAR.ordinal()] = "(";
+		tokenText[CLOSE_PAR.ordinal()] = ")";
+		tokenText[STMT_SEP.ordinal()] = ";";
+		tokenText[EXP_SEP.ordinal()] = ",";
+		tokenText[OPEN_BLOCK.ordinal()] = "{";
+		tokenText[CLOSE_BLOCK.ordinal()] = "}";
+		tokenText[MINUS.ordinal()] = "-";
+		tokenText[OPEN_LIST.ordinal()] = "[";
+		tokenText[CLOSE_LIST.ordinal()] = "]";
+		tokenText[COMPARE.ordinal()] = "==";
+		tokenText[ASSIGN.ordinal()] = "=";
+		tokenText[AND.ordinal()] = "&&";
+		tokenText[NOT.ordinal()] = "!";
+		tokenText[EOF.ordinal()] = "";
+	}
+
+	private static int keywordIndex(int first, int last, int length) {
+		return (first + last + length) & (KEYWORD_TABLE_SIZE - 1);
+	}
+
+	private static void addKeyword(String text, TokenType type) {
+		int index = keywordIndex(text.charAt(0), text.charAt(text.length() - 1), text.length());
+		if (keywordText[index] != null) // the hash function is no longer perfect
+			throw new AssertionError("Fatal error");
+		keywordText[index] = text;
+		keywordType[index] = type;
+		if (type != BOOL)
+			tokenText[type.ordinal()] = text;
+	}
+
+	/*
+	 * returns the text of the tokens of the given type, or null for types whose
+	 * tokens may have different texts
+	 */
+	static String textOf(TokenType type) {
+		return tokenText[type.ordinal()];
+	}
+
+	private static int classOf(int c) {
+		return c >= 0 && c < 128 ? charClass[c] : OTHER;
+	}
+
+	private final Source source;
+	private final int end; // position where the source is considered over
+	private final SymbolTable symbols;
+	private int pos; // position of the next character to be read
+
+	private boolean hasNext = true; // any stream contains at least the EOF token
+	private TokenType tokenType;
+	private String tokenString;
+	private int tokenStart, tokenEnd; // bounds of the current token in source
+	private int intValue;
+	private int identId;
+	private boolean boolValue;
+
+	/*
+	 * tokenizer of the characters of source from start (inclusive) to end
+	 * (exclusive), interning identifiers in symbols
+	 */
+	DfaTokenizer(Source source, int start, int end, SymbolTable symbols) {
+		this.source = source;
+		this.pos = start;
+		this.end = end;
+		this.symbols = symbols;
+	}
+
+	public DfaTokenizer(Source source) {
+		this(source, 0, Integer.MAX_VALUE, SymbolTable.global());
+	}
+
+	public DfaTokenizer(Reader reader) {
+		this(new ReaderSource(reader));
+	}
+
+	/* returns the character at pos + offset without consuming it, or EOS */
+	private int peek(int offset) throws TokenizerException {
+		int position = pos + offset;
+		if (position >= end)
+			return EOS;
+		try {
+			return source.charAt(position);
+		} catch (IOException e) {
+			throw new TokenizerException(e);
+		}
+	}
+
+	/* skips white spaces and comments */
+	private void skip() throws TokenizerException {
+		for (;;) {
+			int c = peek(0);
+			if (classOf(c) == SPACE)
+				pos++;
+			else if (c == '/' && peek(1) == '/') {
+				pos += 2;
+				while ((c = peek(0)) != EOS && c != '\n' && c != '\r')
+					source.release(++pos); // skipped characters need not be kept
+			} else
+				return;
+		}
+	}
+
+	private void scanIdentOrKeyword() throws TokenizerException {
+		int c, hash = 0; // same as String.hashCode()
+		while ((c = peek(0)) != EOS && (classOf(c) == LETTER || classOf(c) == DIGIT)) {
+			hash = 31 * hash + c;
+			pos++;
+		}
+		tokenEnd = pos;
+		int length = tokenEnd - tokenStart;
+		int index = keywordIndex(peekAt(tokenStart), peekAt(tokenEnd - 1), length);
+		String keyword = keywordText[index];
+		if (keyword != null && keyword.length() == length && matches(keyword)) {
+			tokenType = keywordType[index];
+			tokenString = keyword;
+			if (tokenType == BOOL)
+				boolValue = peekAt(tokenStart) == 't';
+			return;
+		}
+		tokenType = IDENT;
+		tokenString = null; // taken from the symbol table on demand
+		try {
+			identId = symbols.intern(source, tokenStart, tokenEnd, hash);
+		} catch (IOException e) {
+			throw new TokenizerException(e);
+		}
+	}
+
+	/* returns the character at an absolute position already read */
+	private int peekAt(int position) throws TokenizerException {
+		return peek(position - pos);
+	}
+
+	/* checks whether the current token has the same characters of text */
+	private boolean matches(String text) throws TokenizerException {
+		for (int i = 0; i < text.length(); i++)
+			if (peekAt(tokenStart + i) != text.charAt(i))
+				return false;
+		return true;
+	}
+
+	private void scanNumber(int first) throws TokenizerException {
+		long value = 0;
+		int c;
+		if (first == '0') {
+			pos++;
+			c = peek(0);
+			if ((c == 'b' || c == 'B') && ((c = peek(1)) == '0' || c == '1')) { // binary literal
+				pos++;
+				while ((c = peek(0)) == '0' || c == '1') {
+					value = Math.min(2 * value + (c - '0'), OUT_OF_RANGE);
+					pos++;
+				}
+			}
+		} else
+			while (classOf(c = peek(0)) == DIGIT) {
+				value = Math.min(10 * value + (c - '0'), OUT_OF_RANGE);
+				pos++;
+			}
+		tokenEnd = pos;
+		if (value == OUT_OF_RANGE)
+			throw new TokenizerException("Integer literal out of range " + source.substring(tokenStart, tokenEnd));
+		tokenType = NUM;
+		tokenString = null; // built on demand
+		intValue = (int) value;
+	}
+
+	/* recognizes symbols made of one or two characters */
+	private void scanSymbol(int c) throws TokenizerException {
+		switch (c) {
+		case '+':
+			symbol(PLUS, 1);
+			return;
+		case '*':
+			symbol(TIMES, 1);
+			return;
+		case '(':
+			symbol(OPEN_PAR, 1);
+			return;
+		case ')':
+			symbol(CLOSE_PAR, 1);
+			return;
+		case ';':
+			symbol(STMT_SEP, 1);
+			return;
+		case ',':
+			symbol(EXP_SEP, 1);
+			return;
+		case '{':
+			symbol(OPEN_BLOCK, 1);
+			return;
+		case '}':
+			symbol(CLOSE_BLOCK, 1);
+			return;
+		case '-':
+			symbol(MINUS, 1);
+			return;
+		case '[':
+			symbol(OPEN_LIST, 1);
+			return;
+		case ']':
+			symbol(CLOSE_LIST, 1);
+			return;
+		case '!':
+			symbol(NOT, 1);
+			return;
+		case '=':
+			if (peek(1) == '=')
+				symbol(COMPARE, 2);
+			else
+				symbol(ASSIGN, 1);
+			return;
+		case ':':
+			if (peek(1) == ':')
+				symbol(PREFIX, 2);
+			else
+				symbol(IN, 1);
+			return;
+		case '&':
+			if (peek(1) == '&')
+				symbol(AND, 2);
+			else
+				unrecognized();
+			return;
+		default:
+			unrecognized();
+		}
+	}
+
+	private void symbol(TokenType type, int length) {
+		pos += length;
+		tokenEnd = pos;
+		tokenType = type;
+		tokenString = tokenText[type.ordinal()];
+	}
+
+	/*
+	 * skips the unrecognized characters up to the next white space or character
+	 * which may start a token, and reports them
+	 */
+	private void unrecognized() throws TokenizerException {
+		pos++;
+		int c;
+		while ((c = peek(0)) != EOS && classOf(c) == OTHER && c != '/' && !isSymbolStart(c))
+			pos++;
+		tokenEnd = pos;
+		throw new TokenizerException("Unrecognized string " + source.substring(tokenStart, tokenEnd));
+	}
+
+	private static boolean isSymbolStart(int c) {
+		return "+*();,{}-[]!=:&".indexOf(c) >= 0;
+	}
+
+	/*
+	 * lexes all the remaining tokens into a TokenBuffer, up to EOF or to the first
+	 * error, which is kept in the buffer
+	 */
+	public TokenBuffer tokenizeAll() {
+		TokenBuffer tokens = new TokenBuffer();
+		try {
+			while (hasNext)
+				tokens.add(next(), tokenStart, tokenEnd - tokenStart, packedValue());
+		} catch (TokenizerException e) {
+			tokens.setError(e);
+		}
+		return tokens;
+	}
+
+	private int packedValue() {
+		switch (tokenType) {
+		case NUM:
+			return intValue;
+		case BOOL:
+			return boolValue ? 1 : 0;
+		case IDENT:
+			return identId;
+		default:
+			return 0;
+		}
+	}
+
+	@Override
+	public TokenType next() throws TokenizerException {
+		tokenType = null;
+		tokenString = "";
+		if (!hasNext)
+			throw new TokenizerException("Unexpected end of the stream");
+		skip();
+		tokenStart = pos;
+		source.release(tokenStart);
+		int c = peek(0);
+		if (c == EOS) {
+			hasNext = false;
+			tokenEnd = pos;
+			return tokenType = EOF;
+		}
+		switch (classOf(c)) {
+		case LETTER:
+			scanIdentOrKeyword();
+			break;
+		case DIGIT:
+			scanNumber(c);
+			break;
+		default:
+			scanSymbol(c);
+		}
+		return tokenType;
+	}
+
+	private void checkValidToken() {
+		if (tokenType == null)
+			throw new IllegalStateException();
+	}
+
+	private void checkValidToken(TokenType ttype) {
+		if (tokenType != ttype)
+			throw new IllegalStateException();
+	}
+
+	@Override
+	public String tokenString() {
+		checkValidToken();
+		if (tokenString == null)
+			tokenString = tokenType == IDENT ? symbols.name(identId) : source.substring(tokenStart, tokenEnd);
+		return tokenString;
+	}
+
+	@Override
+	public int intValue() {
+		checkValidToken(NUM);
+		return intValue;
+	}
+
+	@Override
+	public int identId() {
+		checkValidToken(IDENT);
+		return identId;
+	}
+
+	@Override
+	public Boolean boolValue() {
+		checkValidToken(BOOL);
+		return boolValue;
+	}
+
+	@Override
+	public TokenType tokenType() {
+		checkValidToken();
+		return tokenType;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return hasNext;
+	}
+
+	@Override
+	public void close() throws TokenizerException {
+		try {
+			source.close();
+		} catch (IOException e) {
+			throw new TokenizerException(e);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package parser;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * source backed by a memory-mapped UTF-8 file; bytes are read in place and
+ * ASCII characters, the only ones allowed outside comments, are returned
+ * without any decoding; files must be smaller than 2GB
+ */
+
+public class MappedSource implements Source {
+	private final MappedByteBuffer bytes;
+	private final int size;
+
+	public MappedSource(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("File too large: " + path);
+			this.size = (int) size;
+			bytes = channel.map(MapMode.READ_ONLY, 0, size); // the mapping stays valid after closing the channel
+		}
+	}
+
+	public MappedSource(String fileName) throws IOException {
+		this(Path.of(fileName));
+	}
+
+	/* the number of bytes of the file */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int charAt(int pos) {
+		return pos < size ? bytes.get(pos) & 0xFF : EOS; // non-ASCII bytes are greater than 127
+	}
+
+	@Override
+	public String substring(int start, int end) {
+		byte[] text = new byte[end - start];
+		bytes.get(start, text);
+		return new String(text, UTF_8);
+	}
+
+	@Override
+	public void release(int pos) {
+		// all the file remains mapped
+	}
+
+	@Override
+	public void close() {
+		// the mapping is released when the buffer is garbage collected
+	}
+
+}
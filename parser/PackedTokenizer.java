@@ -0,0 +1,104 @@
+package parser;
+
+import static parser.TokenType.*;
+
+/*
+ * tokenizer reading the tokens already packed in a TokenBuffer; it allows
+ * arbitrary look-ahead with peek() and performs no lexing at all, hence lexing
+ * and parsing can be measured separately
+ */
+
+public class PackedTokenizer implements Tokenizer {
+	private final TokenBuffer tokens;
+	private int index = -1; // index of the current token
+	private TokenType tokenType;
+	private boolean failed; // the error in the buffer has been raised
+
+	public PackedTokenizer(TokenBuffer tokens) {
+		this.tokens = tokens;
+	}
+
+	@Override
+	public TokenType next() throws TokenizerException {
+		if (index + 1 == tokens.size()) {
+			tokenType = null;
+			TokenizerException error = tokens.error();
+			if (error == null || failed)
+				throw new TokenizerException("Unexpected end of the stream");
+			failed = true;
+			throw error;
+		}
+		return tokenType = tokens.type(++index);
+	}
+
+	/*
+	 * returns the type of the k-th token after the current one, or EOF if the
+	 * buffer ends before it
+	 */
+	public TokenType peek(int k) {
+		int i = index + k;
+		return i < tokens.size() ? tokens.type(i) : EOF;
+	}
+
+	private void checkValidToken() {
+		if (tokenType == null)
+			throw new IllegalStateException();
+	}
+
+	private void checkValidToken(TokenType ttype) {
+		if (tokenType != ttype)
+			throw new IllegalStateException();
+	}
+
+	/*
+	 * the text of numbers is not kept, hence binary literals are returned in
+	 * decimal notation
+	 */
+	@Override
+	public String tokenString() {
+		checkValidToken();
+		switch (tokenType) {
+		case IDENT:
+			return SymbolTable.global().name(tokens.value(index));
+		case NUM:
+			return Integer.toString(tokens.value(index));
+		case BOOL:
+			return Boolean.toString(tokens.value(index) != 0);
+		default:
+			return DfaTokenizer.textOf(tokenType);
+		}
+	}
+
+	@Override
+	public int intValue() {
+		checkValidToken(NUM);
+		return tokens.value(index);
+	}
+
+	@Override
+	public int identId() {
+		checkValidToken(IDENT);
+		return tokens.value(index);
+	}
+
+	@Override
+	public Boolean boolValue() {
+		checkValidToken(BOOL);
+		return tokens.value(index) != 0;
+	}
+
+	@Override
+	public TokenType tokenType() {
+		checkValidToken();
+		return tokenType;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return index + 1 < tokens.size() || tokens.error() != null && !failed;
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,94 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * lexes a memory-mapped source on the common fork/join pool: since neither
+ * tokens nor comments span a line break, the source is split into chunks
+ * ending with a line break, each chunk is lexed by its own DfaTokenizer with a
+ * local symbol table, then the chunks are stitched in order into a single
+ * TokenBuffer; identifiers are interned in the global symbol table in source
+ * order, hence they get the same ids as with a sequential tokenizer
+ */
+
+public class ParallelLexer {
+	public static final int DEFAULT_THRESHOLD = 1 << 20; // smaller sources are lexed sequentially
+	private static final int MIN_CHUNK_SIZE = 1 << 18;
+
+	private static class Chunk {
+		final TokenBuffer tokens;
+		final SymbolTable symbols;
+
+		Chunk(TokenBuffer tokens, SymbolTable symbols) {
+			this.tokens = tokens;
+			this.symbols = symbols;
+		}
+	}
+
+	private ParallelLexer() {
+	}
+
+	public static TokenBuffer tokenize(MappedSource source) {
+		return tokenize(source, DEFAULT_THRESHOLD);
+	}
+
+	public static TokenBuffer tokenize(MappedSource source, int threshold) {
+		int size = source.size(), parallelism = ForkJoinPool.getCommonPoolParallelism();
+		if (size < threshold || parallelism < 2)
+			return new DfaTokenizer(source).tokenizeAll();
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (4 * parallelism));
+		List<ForkJoinTask<Chunk>> chunks = new ArrayList<>();
+		for (int start = 0; start < size;) {
+			int chunkStart = start, chunkEnd = lineEnd(source, Math.min(start + chunkSize, size));
+			chunks.add(ForkJoinTask.adapt(() -> lex(source, chunkStart, chunkEnd)).fork());
+			start = chunkEnd;
+		}
+		return stitch(chunks);
+	}
+
+	/* returns the first position from pos which follows a line break, or the size of source */
+	private static int lineEnd(MappedSource source, int pos) {
+		int c;
+		while (pos < source.size() && (c = source.charAt(pos - 1)) != '\n' && c != '\r')
+			pos++;
+		return pos;
+	}
+
+	private static Chunk lex(MappedSource source, int start, int end) {
+		SymbolTable symbols = new SymbolTable();
+		return new Chunk(new DfaTokenizer(source, start, end, symbols).tokenizeAll(), symbols);
+	}
+
+	/*
+	 * concatenates the tokens of the chunks up to the first lexical error,
+	 * dropping the EOF token of all the chunks but the last
+	 */
+	private static TokenBuffer stitch(List<ForkJoinTask<Chunk>> tasks) {
+		List<Chunk> chunks = new ArrayList<>(tasks.size());
+		int capacity = 0;
+		for (ForkJoinTask<Chunk> task : tasks) {
+			Chunk chunk = task.join();
+			chunks.add(chunk);
+			capacity += chunk.tokens.size();
+		}
+		TokenBuffer tokens = new TokenBuffer(capacity);
+		SymbolTable global = SymbolTable.global();
+		for (int i = 0; i < chunks.size(); i++) {
+			Chunk chunk = chunks.get(i);
+			int[] ids = new int[chunk.symbols.size()];
+			for (int id = 0; id < ids.length; id++)
+				ids[id] = global.intern(chunk.symbols.name(id));
+			TokenizerException error = chunk.tokens.error();
+			boolean dropEof = error == null && i < chunks.size() - 1;
+			tokens.append(chunk.tokens, chunk.tokens.size() - (dropEof ? 1 : 0), ids);
+			if (error != null) {
+				tokens.setError(error);
+				break;
+			}
+		}
+		return tokens;
+	}
+}
@@ -0,0 +1,90 @@
+package parser;
+
+import static java.lang.System.out;
+import static java.lang.System.err;
+
+import java.io.StringReader;
+import java.util.Random;
+
+/*
+ * measures the parsing time of a generated expression-heavy program, made of
+ * list literals of short expressions; the program is lexed once into a
+ * TokenBuffer, hence only parsing is measured; both the first, cold run and
+ * the best run are reported
+ * usage: ParserBenchmark [statements [iterations]]
+ */
+
+public class ParserBenchmark {
+
+	private static final String[] binaryOps = { " && ", " == ", " :: ", " + ", " * " };
+	private static final String[] prefixOps = { "-", "!", "opt ", "empty ", "def ", "get " };
+
+	private static void appendExp(StringBuilder sb, Random random, int depth) {
+		if (depth == 0 || random.nextInt(3) == 0) {
+			switch (random.nextInt(4)) {
+			case 0:
+				sb.append(random.nextInt(1000));
+				break;
+			case 1:
+				sb.append("x").append(random.nextInt(10));
+				break;
+			case 2:
+				sb.append(random.nextBoolean());
+				break;
+			default:
+				sb.append(prefixOps[random.nextInt(prefixOps.length)]).append("x").append(random.nextInt(10));
+			}
+			return;
+		}
+		boolean parens = random.nextInt(5) == 0;
+		if (parens)
+			sb.append('(');
+		appendExp(sb, random, depth - 1);
+		sb.append(binaryOps[random.nextInt(binaryOps.length)]);
+		appendExp(sb, random, depth - 1);
+		if (parens)
+			sb.append(')');
+	}
+
+	/* the program need not be well typed, since it is only parsed */
+	private static String program(int statements) {
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < statements; i++) {
+			if (i > 0)
+				sb.append(";\n");
+			sb.append("var x").append(i % 10).append(" = [");
+			for (int j = 0; j < 10; j++) {
+				if (j > 0)
+					sb.append(", ");
+				appendExp(sb, random, 2);
+			}
+			sb.append(']');
+		}
+		return sb.toString();
+	}
+
+	public static void main(String[] args) {
+		int statements = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		try (DfaTokenizer tokenizer = new DfaTokenizer(new StringReader(program(statements)))) {
+			TokenBuffer tokens = tokenizer.tokenizeAll();
+			if (tokens.error() != null)
+				throw tokens.error();
+			long first = 0, best = Long.MAX_VALUE;
+			for (int i = 0; i < iterations; i++) {
+				long start = System.nanoTime();
+				new StreamParser(new PackedTokenizer(tokens)).parseProg();
+				long time = System.nanoTime() - start;
+				if (i == 0)
+					first = time;
+				best = Math.min(best, time);
+			}
+			out.println(tokens.size() + " tokens");
+			out.println("first run (cold): " + first / 1000 + " us");
+			out.println("best of " + iterations + ": " + best / 1000 + " us, " + tokens.size() * 1000L / best + " Mtokens/s");
+		} catch (Throwable e) {
+			err.println("Unexpected error. " + e.getMessage());
+		}
+	}
+}
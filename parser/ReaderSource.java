@@ -0,0 +1,73 @@
+package parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/*
+ * source backed by a Reader; characters are read in large blocks into a buffer
+ * which is compacted by discarding the released characters
+ */
+
+public class ReaderSource implements Source {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+	private char[] buffer = new char[BUFFER_SIZE];
+	private int offset; // absolute position of buffer[0]
+	private int limit; // number of valid characters in buffer
+	private int released; // absolute position of the first character still needed
+	private boolean endOfStream;
+
+	public ReaderSource(Reader reader) {
+		this.reader = reader;
+	}
+
+	/* reads more characters into buffer; returns false if the stream is over */
+	private boolean fill() throws IOException {
+		if (endOfStream)
+			return false;
+		if (limit == buffer.length) {
+			int discard = released - offset;
+			int keep = limit - discard;
+			char[] dest = keep < buffer.length / 2 ? buffer : new char[2 * buffer.length];
+			System.arraycopy(buffer, discard, dest, 0, keep);
+			buffer = dest;
+			offset = released;
+			limit = keep;
+		}
+		int read = reader.read(buffer, limit, buffer.length - limit);
+		if (read < 0) {
+			endOfStream = true;
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+
+	@Override
+	public int charAt(int pos) throws IOException {
+		int index = pos - offset;
+		while (index >= limit)
+			if (!fill())
+				return EOS;
+			else
+				index = pos - offset;
+		return buffer[index];
+	}
+
+	@Override
+	public String substring(int start, int end) {
+		return new String(buffer, start - offset, end - start);
+	}
+
+	@Override
+	public void release(int pos) {
+		released = pos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
@@ -0,0 +1,35 @@
+package parser;
+
+import java.io.IOException;
+
+/*
+ * the characters of a program, addressed by their absolute position; unlike
+ * Scanner, a source is not split into lines, hence tokens and skipped text may
+ * span several lines
+ */
+
+public interface Source extends AutoCloseable {
+
+	/* returned by charAt() when the position is past the end of the source */
+
+	int EOS = -1;
+
+	/*
+	 * returns the character at position pos, or EOS if the source ends before pos;
+	 * characters outside the ASCII range may be returned as any value greater than
+	 * 127; pos must not precede the position passed to the last call of release()
+	 */
+
+	int charAt(int pos) throws IOException;
+
+	/* returns the text from position start (inclusive) to end (exclusive) */
+
+	String substring(int start, int end);
+
+	/* notifies that the characters before position pos are no longer needed */
+
+	void release(int pos);
+
+	public void close() throws IOException;
+
+}
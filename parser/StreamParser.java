@@ -2,23 +2,51 @@ package parser;
 
 import static parser.TokenType.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import parser.ast.*;
 
 /*
 Prog ::= StmtSeq 'EOF'
- StmtSeq ::= Stmt (';' StmtSeq)?
- Stmt ::= 'var'? ID '=' Exp | 'print' Exp |  'for' ID ':' Exp '{' StmtSeq '}'
- ExpSeq ::= Exp (',' ExpSeq)?
- Exp ::= Add ('::' Exp)?
- Add ::= Mul ('+' Mul)*
- Mul::= Atom ('*' Atom)*
- Atom ::= '-' Atom | '[' ExpSeq ']' | NUM | ID | '(' Exp ')'
+ StmtSeq ::= Stmt (';' Stmt)*
+ Stmt ::= 'var'? ID '=' Exp | 'print' Exp | 'for' ID ':' Exp '{' StmtSeq '}'
+        | 'if' Exp '{' StmtSeq '}' ('else' '{' StmtSeq '}')? | 'do' '{' StmtSeq '}' 'while' Exp
+ ExpSeq ::= Exp (',' Exp)*
+ Exp ::= Atom (BinOp Atom)*
+ BinOp ::= '&&' | '==' | '::' | '+' | '*'
+ Atom ::= '-' Atom | '!' Atom | 'opt' Atom | 'empty' Atom | 'def' Atom | 'get' Atom
+        | '[' ExpSeq ']' | NUM | BOOL | ID | '(' Exp ')'
+
+ the binary operators of Exp are grouped by precedence climbing, driven by
+ the bindingPower table, from the loosest to the tightest:
+
+   '&&'  1  right associative
+   '=='  2  left associative
+   '::'  3  left associative
+   '+'   4  left associative
+   '*'   5  left associative
 
+ adding an operator only requires its binding power in the table and its
+ node in newBinaryOp
 */
 
 public class StreamParser implements Parser {
 
+	// binding powers of binary operators, indexed by the ordinal of their token type; 0 for any other token
+	private static final int[] bindingPower = new int[TokenType.values().length];
+	private static final int MIN_POWER = 1;
+
+	static {
+		bindingPower[AND.ordinal()] = 1;
+		bindingPower[COMPARE.ordinal()] = 2;
+		bindingPower[PREFIX.ordinal()] = 3;
+		bindingPower[PLUS.ordinal()] = 4;
+		bindingPower[TIMES.ordinal()] = 5;
+	}
+
 	private final Tokenizer tokenizer;
+	private boolean started; // whether parseNextStmt() has read the first token
 
 	private void tryNext() throws ParserException {
 		try {
@@ -56,22 +84,46 @@ public class StreamParser implements Parser {
 		return prog;
 	}
 
-	private StmtSeq parseStmtSeq() throws ParserException {
-		Stmt stmt = parseStmt();
+	// sequences are parsed by a loop, hence their length is not limited by the stack size
+
+	/*
+	 * streaming alternative to parseProg(): parses the next top-level statement,
+	 * reading no token beyond it, or returns null when the program is over; the
+	 * statements must be processed as they are returned, since a syntax error
+	 * later in the program is detected only when its statement is reached
+	 */
+	public Stmt parseNextStmt() throws ParserException {
+		if (!started) {
+			started = true;
+			tryNext();
+			return parseStmt();
+		}
 		if (tokenizer.tokenType() == STMT_SEP) {
 			tryNext();
-			return new MoreStmt(stmt, parseStmtSeq());
+			return parseStmt();
 		}
-		return new SingleStmt(stmt);
+		match(EOF);
+		return null;
+	}
+
+	private StmtSeq parseStmtSeq() throws ParserException {
+		List<Stmt> stmts = new ArrayList<>();
+		stmts.add(parseStmt());
+		while (tokenizer.tokenType() == STMT_SEP) {
+			tryNext();
+			stmts.add(parseStmt());
+		}
+		return new ManyStmt(stmts);
 	}
 
 	private ExpSeq parseExpSeq() throws ParserException {
-		Exp exp = parseExp();
-		if (tokenizer.tokenType() == EXP_SEP) {
+		List<Exp> exps = new ArrayList<>();
+		exps.add(parseExp());
+		while (tokenizer.tokenType() == EXP_SEP) {
 			tryNext();
-			return new MoreExp(exp, parseExpSeq());
+			exps.add(parseExp());
 		}
-		return new SingleExp(exp);
+		return new ManyExp(exps);
 	}
 
 	private Stmt parseStmt() throws ParserException {
@@ -149,50 +201,50 @@ public class StreamParser implements Parser {
 		
 	}
 	
+	/*
+	 * expressions are parsed by precedence climbing: a binary operator is
+	 * accepted only if its binding power is not lower than the current minimum,
+	 * and the right operand is extended only by operators binding tighter (or as
+	 * tight, for the right associative AND); prefix operators bind tighter than
+	 * any binary operator, hence their operand is an atom
+	 */
+
 	private Exp parseExp() throws ParserException {
-		Exp exp = parseEqual();
-		if (tokenizer.tokenType() == AND) {
-			tryNext();
-			exp = new And(exp, parseExp());
-		}
-		return exp;
-	}
-		
-	
-	private Exp parseEqual() throws ParserException {
-		Exp exp = parsePrefix();
-		while(tokenizer.tokenType() == COMPARE) {
-			tryNext();
-			exp=new Equal(exp,parsePrefix());
-		}
-		return exp;
+		return parseExp(parseAtom(), MIN_POWER);
 	}
-	private Exp parsePrefix() throws ParserException {
-		Exp exp = parseAdd();
-		while(tokenizer.tokenType() == PREFIX) {
-			tryNext();
-			exp= new Prefix(exp, parseAdd());
-		}
-		return exp;
-	}
-	
-	
-	private Exp parseAdd() throws ParserException {
-		Exp exp = parseMul();
-		while (tokenizer.tokenType() == PLUS) {
+
+	/* parses the operators which follow left and have binding power at least minPower */
+	private Exp parseExp(Exp left, int minPower) throws ParserException {
+		for (;;) {
+			TokenType op = tokenizer.tokenType();
+			int power = bindingPower[op.ordinal()];
+			if (power < minPower) // also when op is not a binary operator
+				return left;
 			tryNext();
-			exp = new Add(exp, parseMul());
+			Exp right = parseAtom();
+			int nextPower;
+			while ((nextPower = bindingPower[tokenizer.tokenType().ordinal()]) > power
+					|| nextPower == power && op == AND) // only AND is right associative
+				right = parseExp(right, nextPower);
+			left = newBinaryOp(op, left, right);
 		}
-		return exp;
 	}
 
-	private Exp parseMul() throws ParserException {
-		Exp exp = parseAtom();
-		while (tokenizer.tokenType() == TIMES) {
-			tryNext();
-			exp = new Mul(exp, parseAtom());
+	private static Exp newBinaryOp(TokenType op, Exp left, Exp right) {
+		switch (op) {
+		case AND:
+			return new And(left, right);
+		case COMPARE:
+			return new Equal(left, right);
+		case PREFIX:
+			return new Prefix(left, right);
+		case PLUS:
+			return new Add(left, right);
+		case TIMES:
+			return new Mul(left, right);
+		default:
+			throw new AssertionError("Fatal error");
 		}
-		return exp;
 	}
 
 	private Exp parseAtom() throws ParserException {
@@ -237,9 +289,10 @@ public class StreamParser implements Parser {
 	}
 
 	private Ident parseIdent() throws ParserException {
-		String name = tokenizer.tokenString();
-		consume(IDENT); // or tryNext();
-		return new SimpleIdent(name);
+		match(IDENT); // identId() is only valid for identifiers
+		int id = tokenizer.identId();
+		tryNext();
+		return new SimpleIdent(id);
 	}
 
 	private Sign parseMinus() throws ParserException {
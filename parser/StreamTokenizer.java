@@ -16,6 +16,7 @@ public class StreamTokenizer implements Tokenizer {
 	private TokenType tokenType;
 	private String tokenString;
 	private int intValue;
+	private int identId;
 	private final Scanner scanner;
 	private boolean boolValue;
 	
@@ -73,8 +74,10 @@ public class StreamTokenizer implements Tokenizer {
 		tokenString = scanner.group();
 		if (scanner.group(IDENT.ordinal()) != null) { // IDENT or a keyword
 			tokenType = keywords.get(tokenString);
-			if (tokenType == null)
+			if (tokenType == null) {
 				tokenType = IDENT;
+				identId = SymbolTable.global().intern(tokenString);
+			}
 			if (tokenType == BOOL)
 				boolValue=Boolean.parseBoolean(tokenString) ;
 			return;
@@ -141,6 +144,12 @@ public class StreamTokenizer implements Tokenizer {
 		return intValue;
 	}
 
+	@Override
+	public int identId() {
+		checkValidToken(IDENT);
+		return identId;
+	}
+
 	@Override
 	public Boolean boolValue() {
 		checkValidToken(BOOL);
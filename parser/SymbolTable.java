@@ -0,0 +1,102 @@
+package parser;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * table interning the names of identifiers into dense int ids, starting from
+ * 0; identifiers are interned once in the global table by the tokenizers, then
+ * the AST and the environments compare and hash them through their ids only;
+ * other tables are only used locally, for instance by the tokenizers of
+ * ParallelLexer
+ */
+
+public class SymbolTable {
+	private static final int INITIAL_CAPACITY = 256; // must be a power of 2
+	private static final SymbolTable global = new SymbolTable();
+
+	private String[] names = new String[INITIAL_CAPACITY];
+	private int[] hashes = new int[INITIAL_CAPACITY];
+	private int[] slots = new int[2 * INITIAL_CAPACITY]; // open addressing; id + 1, or 0 for free slots
+	private int size;
+
+	/* the table shared by tokenizers, AST and environments */
+	public static SymbolTable global() {
+		return global;
+	}
+
+	/* returns the id of name, adding it to the table if needed */
+	public synchronized int intern(String name) {
+		int hash = name.hashCode();
+		int mask = slots.length - 1;
+		for (int i = hash & mask;; i = (i + 1) & mask) {
+			int id = slots[i] - 1;
+			if (id < 0)
+				return add(i, name, hash);
+			if (hashes[id] == hash && names[id].equals(name))
+				return id;
+		}
+	}
+
+	/*
+	 * returns the id of the identifier between positions start (inclusive) and end
+	 * (exclusive) of source, whose String hash code is hash, adding it to the table
+	 * if needed; no String is created for identifiers already in the table
+	 */
+	public synchronized int intern(Source source, int start, int end, int hash) throws IOException {
+		int mask = slots.length - 1;
+		for (int i = hash & mask;; i = (i + 1) & mask) {
+			int id = slots[i] - 1;
+			if (id < 0)
+				return add(i, source.substring(start, end), hash);
+			if (hashes[id] == hash && matches(names[id], source, start, end))
+				return id;
+		}
+	}
+
+	private static boolean matches(String name, Source source, int start, int end) throws IOException {
+		if (name.length() != end - start)
+			return false;
+		for (int i = 0; i < name.length(); i++)
+			if (name.charAt(i) != source.charAt(start + i))
+				return false;
+		return true;
+	}
+
+	private int add(int slot, String name, int hash) {
+		int id = size++;
+		if (id == names.length) {
+			names = Arrays.copyOf(names, 2 * id);
+			hashes = Arrays.copyOf(hashes, 2 * id);
+		}
+		names[id] = name;
+		hashes[id] = hash;
+		slots[slot] = id + 1;
+		if (2 * size > slots.length) // keeps the load factor below 1/2
+			rehash();
+		return id;
+	}
+
+	private void rehash() {
+		slots = new int[2 * slots.length];
+		int mask = slots.length - 1;
+		for (int id = 0; id < size; id++) {
+			int i = hashes[id] & mask;
+			while (slots[i] != 0)
+				i = (i + 1) & mask;
+			slots[i] = id + 1;
+		}
+	}
+
+	/* returns the name of the identifier with the given id */
+	public synchronized String name(int id) {
+		if (id < 0 || id >= size)
+			throw new IllegalArgumentException("Unknown identifier id " + id);
+		return names[id];
+	}
+
+	/* returns the number of interned identifiers */
+	public synchronized int size() {
+		return size;
+	}
+}
@@ -0,0 +1,96 @@
+package parser;
+
+import java.util.Arrays;
+
+/*
+ * a whole token stream packed in parallel int arrays: for each token its type
+ * (ordinal of TokenType), its offset and length in the source, and its value,
+ * that is, the int value of NUM, 1 or 0 for true or false BOOL, the symbol id
+ * of IDENT, and 0 for the other tokens; if lexing stopped because of an error,
+ * the exception is kept to be raised after the last token
+ */
+
+public class TokenBuffer {
+	private static final TokenType[] tokenTypes = TokenType.values();
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private int[] types, offsets, lengths, values;
+	private int size;
+	private TokenizerException error;
+
+	TokenBuffer(int capacity) {
+		types = new int[capacity];
+		offsets = new int[capacity];
+		lengths = new int[capacity];
+		values = new int[capacity];
+	}
+
+	TokenBuffer() {
+		this(INITIAL_CAPACITY);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > types.length) {
+			int length = Math.max(capacity, 2 * types.length);
+			types = Arrays.copyOf(types, length);
+			offsets = Arrays.copyOf(offsets, length);
+			lengths = Arrays.copyOf(lengths, length);
+			values = Arrays.copyOf(values, length);
+		}
+	}
+
+	void add(TokenType type, int offset, int length, int value) {
+		ensureCapacity(size + 1);
+		types[size] = type.ordinal();
+		offsets[size] = offset;
+		lengths[size] = length;
+		values[size] = value;
+		size++;
+	}
+
+	/*
+	 * appends the first count tokens of other, translating the values of
+	 * identifiers through ids
+	 */
+	void append(TokenBuffer other, int count, int[] ids) {
+		ensureCapacity(size + count);
+		System.arraycopy(other.types, 0, types, size, count);
+		System.arraycopy(other.offsets, 0, offsets, size, count);
+		System.arraycopy(other.lengths, 0, lengths, size, count);
+		System.arraycopy(other.values, 0, values, size, count);
+		final int ident = TokenType.IDENT.ordinal();
+		for (int i = size; i < size + count; i++)
+			if (types[i] == ident)
+				values[i] = ids[values[i]];
+		size += count;
+	}
+
+	void setError(TokenizerException error) {
+		this.error = error;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public TokenType type(int index) {
+		return tokenTypes[types[index]];
+	}
+
+	public int offset(int index) {
+		return offsets[index];
+	}
+
+	public int length(int index) {
+		return lengths[index];
+	}
+
+	public int value(int index) {
+		return values[index];
+	}
+
+	/* the error which stopped lexing after the last token, or null */
+	public TokenizerException error() {
+		return error;
+	}
+}
@@ -8,6 +8,8 @@ public interface Tokenizer extends AutoCloseable {
 
 	int intValue();
 
+	int identId(); // the id of the identifier in SymbolTable
+
 	TokenType tokenType();
 
 	boolean hasNext();
@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class Add extends BinaryOp {
@@ -11,4 +13,14 @@ public class Add extends BinaryOp {
 	public <T> T accept(Visitor<T> visitor) {
 		return visitor.visitAdd(left, right);
 	}
+
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitAdd(left, right);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitOther(this);
+	}
 }
@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class And extends BinaryOp{
@@ -11,4 +13,14 @@ public class And extends BinaryOp{
 	public <T> T accept(Visitor<T> visitor) {
 		return visitor.visitAnd(left, right);
 	}
+
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitAnd(left, right);
+	}
 }
@@ -2,15 +2,36 @@ package parser.ast;
 
 import static java.util.Objects.requireNonNull;
 
+import visitors.typechecking.Type;
+
 public abstract class BinaryOp implements Exp {
 	protected final Exp left;
 	protected final Exp right;
+	private Type type; // set by the type checker
 
 	protected BinaryOp(Exp left, Exp right) {
 		this.left = requireNonNull(left);
 		this.right = requireNonNull(right);
 	}
 
+	public Exp getLeft() {
+		return left;
+	}
+
+	public Exp getRight() {
+		return right;
+	}
+
+	@Override
+	public Type getType() {
+		return type;
+	}
+
+	@Override
+	public void setType(Type type) {
+		this.type = type;
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "(" + left + "," + right + ")";
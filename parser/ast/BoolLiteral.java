@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class BoolLiteral extends PrimLiteral<Boolean> {
@@ -11,4 +13,14 @@ public class BoolLiteral extends PrimLiteral<Boolean> {
 	public <T> T accept(Visitor<T> visitor) {
 		return visitor.visitBoolLiteral(value);
 	}
+
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitBoolLiteral(value);
+	}
 }
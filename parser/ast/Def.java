@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class Def extends UnaryOp {
@@ -13,4 +15,14 @@ public class Def extends UnaryOp {
 		return visitor.visitDef(exp);
 	}
 
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitDef(exp);
+	}
+
 }
@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class Empty  extends UnaryOp {
@@ -13,4 +15,14 @@ public class Empty  extends UnaryOp {
 	public <T> T accept(Visitor<T> visitor) {
 		return visitor.visitEmpty(exp);
 	}
+
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitOther(this);
+	}
 }
\ No newline at end of file
@@ -1,4 +1,6 @@
 package parser.ast;
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class Equal extends BinaryOp{
@@ -11,4 +13,14 @@ public class Equal extends BinaryOp{
 	public <T> T accept(Visitor<T> visitor) {
 		return visitor.visitEqual(left, right);
 	}
+
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitEqual(left, right);
+	}
 }
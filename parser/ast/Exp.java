@@ -1,4 +1,18 @@
 package parser.ast;
 
+
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
+import visitors.typechecking.Type;
+
 public interface Exp extends AST {
+	/* the static type of the expression, recorded by the type checker; null until checked */
+	Type getType();
+
+	void setType(Type type);
+
+	/* dispatch of the expressions in int and bool position, whose visitors return primitives */
+	int acceptInt(IntVisitor visitor);
+
+	boolean acceptBool(BoolVisitor visitor);
 }
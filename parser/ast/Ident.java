@@ -2,4 +2,18 @@ package parser.ast;
 
 public interface Ident extends Exp {
 	String getName();
+
+	/* the id of the name in the global symbol table */
+	int getId();
+
+	/*
+	 * the lexical address of the variable set by the static resolver: the depth
+	 * of the scope level which declares it, and its slot in the frame of that
+	 * level; the depth is -1 until the identifier is resolved
+	 */
+	int getDepth();
+
+	int getSlot();
+
+	void setAddress(int depth, int slot);
 }
@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class IntLiteral extends PrimLiteral<Integer> {
@@ -13,4 +15,14 @@ public class IntLiteral extends PrimLiteral<Integer> {
 		return visitor.visitIntLiteral(value);
 	}
 
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitIntLiteral(value);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
 }
@@ -2,15 +2,33 @@ package parser.ast;
 
 import static java.util.Objects.requireNonNull;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
+import visitors.typechecking.Type;
 
 public class ListLiteral implements Exp {
 	private final ExpSeq exps;
+	private Type type; // set by the type checker
 
 	public ListLiteral(ExpSeq exps) {
 		this.exps = requireNonNull(exps);
 	}
 
+	public ExpSeq getExps() {
+		return exps;
+	}
+
+	@Override
+	public Type getType() {
+		return type;
+	}
+
+	@Override
+	public void setType(Type type) {
+		this.type = type;
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "(" + exps + ")";
@@ -21,4 +39,14 @@ public class ListLiteral implements Exp {
 		return visitor.visitListLiteral(exps);
 	}
 
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
 }
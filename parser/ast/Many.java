@@ -0,0 +1,20 @@
+package parser.ast;
+
+import java.util.List;
+
+public class Many<T> {
+	protected final List<T> items;
+
+	public Many(List<T> items) {
+		this.items = List.copyOf(items); // rejects null items
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + items;
+	}
+}
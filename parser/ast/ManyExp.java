@@ -0,0 +1,17 @@
+package parser.ast;
+
+import java.util.List;
+
+import visitors.Visitor;
+
+public class ManyExp extends Many<Exp> implements ExpSeq {
+
+	public ManyExp(List<Exp> exps) {
+		super(exps);
+	}
+
+	@Override
+	public <T> T accept(Visitor<T> visitor) {
+		return visitor.visitManyExp(items);
+	}
+}
@@ -0,0 +1,17 @@
+package parser.ast;
+
+import java.util.List;
+
+import visitors.Visitor;
+
+public class ManyStmt extends Many<Stmt> implements StmtSeq {
+
+	public ManyStmt(List<Stmt> stmts) {
+		super(stmts);
+	}
+
+	@Override
+	public <T> T accept(Visitor<T> visitor) {
+		return visitor.visitManyStmt(items);
+	}
+}
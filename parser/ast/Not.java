@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class Not extends UnaryOp {
@@ -12,4 +14,14 @@ public class Not extends UnaryOp {
 	public <T> T accept(Visitor<T> visitor) {
 		return visitor.visitNot(exp);
 	}
+
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitNot(exp);
+	}
 }
@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class OptLiteral  extends UnaryOp {
@@ -18,4 +20,14 @@ public class OptLiteral  extends UnaryOp {
 		return visitor.visitOptLiteral(exp);
 	}
 
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
 }
@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class Prefix extends BinaryOp {
@@ -12,4 +14,14 @@ public class Prefix extends BinaryOp {
 	public <T> T accept(Visitor<T> visitor) {
 		return visitor.visitPrefix(left, right);
 	}
+
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitOther(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitOther(this);
+	}
 }
@@ -1,13 +1,30 @@
 package parser.ast;
 
+import visitors.typechecking.Type;
+
 public abstract class PrimLiteral<T> implements Exp {
 
 	protected final T value;
+	private Type type; // set by the type checker
 
 	public PrimLiteral(T n) {
 		this.value = n;
 	}
 
+	public T getValue() {
+		return value;
+	}
+
+	@Override
+	public Type getType() {
+		return type;
+	}
+
+	@Override
+	public void setType(Type type) {
+		this.type = type;
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "(" + value + ")";
@@ -1,5 +1,7 @@
 package parser.ast;
 
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
 
 public class Sign extends UnaryOp {
@@ -12,4 +14,14 @@ public class Sign extends UnaryOp {
 	public <T> T accept(Visitor<T> visitor) {
 		return visitor.visitSign(exp);
 	}
+
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitSign(exp);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitOther(this);
+	}
 }
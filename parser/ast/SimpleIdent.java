@@ -2,18 +2,49 @@ package parser.ast;
 
 import static java.util.Objects.requireNonNull;
 
+import parser.SymbolTable;
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
+import visitors.typechecking.Type;
 
 public class SimpleIdent implements Ident {
-	private final String name;
+	private final int id;
+	private int depth = -1, slot; // the lexical address, set by the static resolver
+	private Type type; // set by the type checker
+
+	public SimpleIdent(int id) {
+		this.id = id;
+	}
 
 	public SimpleIdent(String name) {
-		this.name = requireNonNull(name);
+		this(SymbolTable.global().intern(requireNonNull(name)));
 	}
 
 	@Override
 	public String getName() {
-		return name;
+		return SymbolTable.global().name(id);
+	}
+
+	@Override
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public int getDepth() {
+		return depth;
+	}
+
+	@Override
+	public int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public void setAddress(int depth, int slot) {
+		this.depth = depth;
+		this.slot = slot;
 	}
 
 	@Override
@@ -22,21 +53,41 @@ public class SimpleIdent implements Ident {
 			return true;
 		if (!(obj instanceof Ident))
 			return false;
-		return name.equals(((Ident) obj).getName());
+		return id == ((Ident) obj).getId();
 	}
 
 	@Override
 	public int hashCode() {
-		return name.hashCode();
+		return id;
+	}
+
+	@Override
+	public Type getType() {
+		return type;
+	}
+
+	@Override
+	public void setType(Type type) {
+		this.type = type;
 	}
 
 	@Override
 	public String toString() {
-		return getClass().getSimpleName() + "(" + name + ")";
+		return getClass().getSimpleName() + "(" + getName() + ")";
 	}
 
 	@Override
 	public <T> T accept(Visitor<T> visitor) {
-		return visitor.visitIdent(name); // left for uniformity, instead of return visitor.visitIdent(this);
+		return visitor.visitIdent(this); // the node itself, so that visitors need not create a new one
+	}
+
+	@Override
+	public int acceptInt(IntVisitor visitor) {
+		return visitor.visitIdent(this);
+	}
+
+	@Override
+	public boolean acceptBool(BoolVisitor visitor) {
+		return visitor.visitIdent(this);
 	}
 }
@@ -2,13 +2,30 @@ package parser.ast;
 
 import static java.util.Objects.requireNonNull;
 
+import visitors.typechecking.Type;
+
 public abstract class UnaryOp implements Exp {
 	protected final Exp exp;
+	private Type type; // set by the type checker
 
 	protected UnaryOp(Exp exp) {
 		this.exp = requireNonNull(exp);
 	}
 
+	public Exp getExp() {
+		return exp;
+	}
+
+	@Override
+	public Type getType() {
+		return type;
+	}
+
+	@Override
+	public void setType(Type type) {
+		this.type = type;
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "(" + exp + ")";
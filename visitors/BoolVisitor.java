@@ -0,0 +1,28 @@
+package visitors;
+
+import parser.ast.Exp;
+import parser.ast.Ident;
+
+/*
+ * visitors of the expressions in bool position, returning unboxed booleans;
+ * the expressions which cannot have type bool are visited by visitOther,
+ * hence a new bool operator must be added here to be evaluated unboxed
+ */
+
+public interface BoolVisitor {
+	boolean visitAnd(Exp left, Exp right);
+
+	boolean visitNot(Exp exp);
+
+	boolean visitEqual(Exp left, Exp right);
+
+	boolean visitBoolLiteral(boolean value);
+
+	boolean visitDef(Exp exp);
+
+	boolean visitIdent(Ident ident);
+
+	boolean visitGet(Exp exp);
+
+	boolean visitOther(Exp exp);
+}
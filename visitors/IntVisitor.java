@@ -0,0 +1,26 @@
+package visitors;
+
+import parser.ast.Exp;
+import parser.ast.Ident;
+
+/*
+ * visitors of the expressions in int position, returning unboxed ints; the
+ * expressions which cannot have type int are visited by visitOther, hence a
+ * new int operator must be added here to be evaluated unboxed
+ */
+
+public interface IntVisitor {
+	int visitAdd(Exp left, Exp right);
+
+	int visitMul(Exp left, Exp right);
+
+	int visitSign(Exp exp);
+
+	int visitIntLiteral(int value);
+
+	int visitIdent(Ident ident);
+
+	int visitGet(Exp exp);
+
+	int visitOther(Exp exp);
+}
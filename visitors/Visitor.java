@@ -1,5 +1,7 @@
 package visitors;
 
+import java.util.List;
+
 import parser.ast.Exp;
 import parser.ast.ExpSeq;
 import parser.ast.Ident;
@@ -21,6 +23,10 @@ public interface Visitor<T> {
 
 	T visitMoreStmt(Stmt first, StmtSeq rest);
 
+	T visitManyExp(List<Exp> exps);
+
+	T visitManyStmt(List<Stmt> stmts);
+
 	T visitMul(Exp left, Exp right);
 
 	T visitPrefix(Exp left, Exp right);
@@ -31,7 +37,7 @@ public interface Visitor<T> {
 
 	T visitSign(Exp exp);
 
-	T visitIdent(String name);
+	T visitIdent(Ident ident);
 
 	T visitSingleExp(Exp exp);
 
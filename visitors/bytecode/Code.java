@@ -0,0 +1,24 @@
+package visitors.bytecode;
+
+/*
+ * a compiled program, with the sizes of the stacks and of the frames
+ * computed by the compiler, so that the VM never checks for overflows
+ */
+
+public final class Code {
+	final int[] code;
+	final int[] frameSizes; // the number of slots of the frame at each depth
+	final int maxInts, maxValues, maxLoops; // the sizes of the int, value and iterator stacks
+
+	Code(int[] code, int[] frameSizes, int maxInts, int maxValues, int maxLoops) {
+		this.code = code;
+		this.frameSizes = frameSizes;
+		this.maxInts = maxInts;
+		this.maxValues = maxValues;
+		this.maxLoops = maxLoops;
+	}
+
+	public int size() {
+		return code.length;
+	}
+}
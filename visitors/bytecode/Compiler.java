@@ -0,0 +1,411 @@
+package visitors.bytecode;
+
+import static visitors.bytecode.Opcode.*;
+import static visitors.typechecking.PrimtType.BOOL;
+import static visitors.typechecking.PrimtType.INT;
+
+import java.util.Arrays;
+import java.util.List;
+
+import parser.ast.Exp;
+import parser.ast.ExpSeq;
+import parser.ast.Ident;
+import parser.ast.Prog;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+import visitors.Visitor;
+import visitors.resolution.Resolver;
+import visitors.typechecking.ListType;
+import visitors.typechecking.OptType;
+import visitors.typechecking.Type;
+
+/*
+ * compiles a type checked program into stack bytecode; the visitor returns
+ * the type of the compiled expression, which selects the stack of its value,
+ * and null for statements
+ *
+ * variables are addressed by the slots set by the resolver; the type of a
+ * slot is the one of its most recently compiled declaration, which is the
+ * declaration the variable is resolved to, since programs are compiled in
+ * the same order as they are resolved
+ */
+
+public class Compiler implements Visitor<Type> {
+
+	private int[] code = new int[64];
+	private int size;
+
+	private Type[][] slotTypes = new Type[1][];
+	private int[] frameSizes = new int[1];
+
+	// the current and maximum heights of the stacks
+	private int ints, values, loops, maxInts, maxValues, maxLoops;
+
+	private int elements; // the number of elements of the list literal being compiled
+
+	public static Code compile(Prog prog) {
+		prog.accept(new Resolver());
+		Compiler compiler = new Compiler();
+		prog.accept(compiler);
+		compiler.emit(HALT);
+		return new Code(Arrays.copyOf(compiler.code, compiler.size), compiler.frameSizes, compiler.maxInts,
+				compiler.maxValues, compiler.maxLoops);
+	}
+
+	// auxiliary methods
+
+	private static boolean isPrim(Type type) {
+		return type == INT || type == BOOL;
+	}
+
+	/* appends an instruction and updates the heights of the stacks */
+	private void emit(int opcode, int... operands) {
+		if (size + operands.length + 1 > code.length)
+			code = Arrays.copyOf(code, 2 * code.length + operands.length);
+		code[size++] = opcode;
+		for (int operand : operands)
+			code[size++] = operand;
+		switch (opcode) {
+		case CONST:
+		case LOAD_INT:
+			ints++;
+			break;
+		case LOAD_VALUE:
+			values++;
+			break;
+		case BOX_INT:
+		case BOX_BOOL:
+			ints--;
+			values++;
+			break;
+		case STORE_INT:
+		case ADD:
+		case MUL:
+		case EQ_INT:
+		case PRINT_INT:
+		case PRINT_BOOL:
+		case IF_FALSE:
+		case IF_TRUE:
+			ints--;
+			break;
+		case STORE_VALUE:
+		case PREFIX:
+		case PRINT_VALUE:
+		case ITER:
+			values--;
+			break;
+		case EQ_VALUE:
+			values -= 2;
+			ints++;
+			break;
+		case UNBOX_INT:
+		case UNBOX_BOOL:
+		case DEF:
+			values--;
+			ints++;
+			break;
+		case LIST:
+			values += 1 - operands[0];
+			break;
+		}
+		maxInts = Math.max(maxInts, ints);
+		maxValues = Math.max(maxValues, values);
+	}
+
+	/* the address of the next instruction */
+	private int label() {
+		return size;
+	}
+
+	/* sets the target of the jump whose target operand is at address */
+	private void patch(int address) {
+		code[address] = size;
+	}
+
+	private Type slotType(Ident ident) {
+		return slotTypes[ident.getDepth()][ident.getSlot()];
+	}
+
+	private void declare(Ident ident, Type type) {
+		int depth = ident.getDepth(), slot = ident.getSlot();
+		if (depth >= frameSizes.length) {
+			frameSizes = Arrays.copyOf(frameSizes, depth + 1);
+			slotTypes = Arrays.copyOf(slotTypes, depth + 1);
+		}
+		if (slot >= frameSizes[depth]) {
+			frameSizes[depth] = slot + 1;
+			slotTypes[depth] = Arrays.copyOf(slotTypes[depth] == null ? new Type[0] : slotTypes[depth], slot + 1);
+		}
+		slotTypes[depth][slot] = type;
+	}
+
+	private void store(Ident ident, Type type) {
+		emit(isPrim(type) ? STORE_INT : STORE_VALUE, ident.getDepth(), ident.getSlot());
+	}
+
+	/* compiles an expression whose value must be on the value stack */
+	private Type boxed(Exp exp) {
+		Type type = exp.accept(this);
+		if (type == INT)
+			emit(BOX_INT);
+		else if (type == BOOL)
+			emit(BOX_BOOL);
+		return type;
+	}
+
+	@Override
+	public Type visitProg(StmtSeq stmtSeq) {
+		stmtSeq.accept(this);
+		return null;
+	}
+
+	// statements
+
+	@Override
+	public Type visitAssignStmt(Ident ident, Exp exp) {
+		exp.accept(this);
+		store(ident, slotType(ident));
+		return null;
+	}
+
+	@Override
+	public Type visitVarStmt(Ident ident, Exp exp) {
+		Type type = exp.accept(this);
+		declare(ident, type);
+		store(ident, type);
+		return null;
+	}
+
+	@Override
+	public Type visitPrintStmt(Exp exp) {
+		Type type = exp.accept(this);
+		emit(type == INT ? PRINT_INT : type == BOOL ? PRINT_BOOL : PRINT_VALUE);
+		return null;
+	}
+
+	/* ITER; loop: NEXT x exit; block; GOTO loop; exit: */
+	@Override
+	public Type visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
+		Type elemType = exp.accept(this).getListElemType();
+		emit(ITER);
+		maxLoops = Math.max(maxLoops, ++loops);
+		declare(ident, elemType);
+		int loop = label();
+		emit(elemType == INT ? NEXT_INT : elemType == BOOL ? NEXT_BOOL : NEXT_VALUE, ident.getDepth(),
+				ident.getSlot(), -1);
+		int exit = label() - 1;
+		block.accept(this);
+		emit(GOTO, loop);
+		patch(exit);
+		loops--;
+		return null;
+	}
+
+	/* exp; IF_FALSE end; block; end: */
+	@Override
+	public Type visitIfStmt(Exp exp, StmtSeq block) {
+		exp.accept(this);
+		emit(IF_FALSE, -1);
+		int end = label() - 1;
+		block.accept(this);
+		patch(end);
+		return null;
+	}
+
+	/* exp; IF_FALSE other; block; GOTO end; other: option; end: */
+	@Override
+	public Type visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		exp.accept(this);
+		emit(IF_FALSE, -1);
+		int other = label() - 1;
+		block.accept(this);
+		emit(GOTO, -1);
+		int end = label() - 1;
+		patch(other);
+		option.accept(this);
+		patch(end);
+		return null;
+	}
+
+	/* loop: stmt; exp; IF_TRUE loop */
+	@Override
+	public Type visitDoStmt(StmtSeq stmt, Exp exp) {
+		int loop = label();
+		stmt.accept(this);
+		exp.accept(this);
+		emit(IF_TRUE, loop);
+		return null;
+	}
+
+	// sequences
+
+	@Override
+	public Type visitSingleStmt(Stmt stmt) {
+		stmt.accept(this);
+		return null;
+	}
+
+	@Override
+	public Type visitMoreStmt(Stmt first, StmtSeq rest) {
+		first.accept(this);
+		rest.accept(this);
+		return null;
+	}
+
+	@Override
+	public Type visitManyStmt(List<Stmt> stmts) {
+		for (Stmt stmt : stmts)
+			stmt.accept(this);
+		return null;
+	}
+
+	// the elements of list literals, boxed on the value stack; the type of the elements is returned
+
+	@Override
+	public Type visitSingleExp(Exp exp) {
+		elements++;
+		return boxed(exp);
+	}
+
+	@Override
+	public Type visitMoreExp(Exp first, ExpSeq rest) {
+		elements++;
+		Type type = boxed(first);
+		rest.accept(this);
+		return type;
+	}
+
+	@Override
+	public Type visitManyExp(List<Exp> exps) {
+		Type type = null;
+		for (Exp exp : exps)
+			type = boxed(exp);
+		elements += exps.size();
+		return type;
+	}
+
+	// expressions
+
+	@Override
+	public Type visitAdd(Exp left, Exp right) {
+		left.accept(this);
+		right.accept(this);
+		emit(ADD);
+		return INT;
+	}
+
+	@Override
+	public Type visitMul(Exp left, Exp right) {
+		left.accept(this);
+		right.accept(this);
+		emit(MUL);
+		return INT;
+	}
+
+	@Override
+	public Type visitPrefix(Exp left, Exp right) {
+		boxed(left);
+		Type type = right.accept(this);
+		emit(PREFIX);
+		return type;
+	}
+
+	/* left; IF_FALSE other; right; GOTO end; other: CONST 0; end: */
+	@Override
+	public Type visitAnd(Exp left, Exp right) {
+		left.accept(this);
+		emit(IF_FALSE, -1);
+		int other = label() - 1;
+		right.accept(this);
+		emit(GOTO, -1);
+		int end = label() - 1;
+		ints--; // only one of the two branches pushes its result
+		patch(other);
+		emit(CONST, 0);
+		patch(end);
+		return BOOL;
+	}
+
+	@Override
+	public Type visitEqual(Exp left, Exp right) {
+		Type type = left.accept(this);
+		right.accept(this);
+		emit(isPrim(type) ? EQ_INT : EQ_VALUE);
+		return BOOL;
+	}
+
+	@Override
+	public Type visitSign(Exp exp) {
+		exp.accept(this);
+		emit(NEG);
+		return INT;
+	}
+
+	@Override
+	public Type visitNot(Exp exp) {
+		exp.accept(this);
+		emit(NOT);
+		return BOOL;
+	}
+
+	@Override
+	public Type visitOptLiteral(Exp exp) {
+		Type type = boxed(exp);
+		emit(OPT);
+		return new OptType(type);
+	}
+
+	@Override
+	public Type visitEmpty(Exp exp) {
+		Type type = exp.accept(this);
+		emit(EMPTY);
+		return type;
+	}
+
+	@Override
+	public Type visitGet(Exp exp) {
+		Type type = exp.accept(this).getOptElemType();
+		emit(GET);
+		if (type == INT)
+			emit(UNBOX_INT);
+		else if (type == BOOL)
+			emit(UNBOX_BOOL);
+		return type;
+	}
+
+	@Override
+	public Type visitDef(Exp exp) {
+		exp.accept(this);
+		emit(DEF);
+		return BOOL;
+	}
+
+	@Override
+	public Type visitListLiteral(ExpSeq exps) {
+		int outer = elements;
+		elements = 0;
+		Type type = exps.accept(this);
+		emit(LIST, elements);
+		elements = outer;
+		return new ListType(type);
+	}
+
+	@Override
+	public Type visitIntLiteral(int value) {
+		emit(CONST, value);
+		return INT;
+	}
+
+	@Override
+	public Type visitBoolLiteral(Boolean value) {
+		emit(CONST, value ? 1 : 0);
+		return BOOL;
+	}
+
+	@Override
+	public Type visitIdent(Ident ident) {
+		Type type = slotType(ident);
+		emit(isPrim(type) ? LOAD_INT : LOAD_VALUE, ident.getDepth(), ident.getSlot());
+		return type;
+	}
+}
@@ -0,0 +1,26 @@
+package visitors.bytecode;
+
+/*
+ * the opcodes of the stack bytecode; ints and bools are kept unboxed on the
+ * int stack and in the int slots of the frames, bools as 0 and 1, while all
+ * other values are kept on the value stack and in the value slots; the
+ * operands follow the opcode in the code array
+ */
+
+final class Opcode {
+	// constants and variables; LOAD and STORE are followed by the depth and the slot
+	static final int CONST = 0, LOAD_INT = 1, LOAD_VALUE = 2, STORE_INT = 3, STORE_VALUE = 4;
+	// ints and bools
+	static final int ADD = 5, MUL = 6, NEG = 7, NOT = 8, EQ_INT = 9, EQ_VALUE = 10;
+	// boxing and unboxing between the two stacks
+	static final int BOX_INT = 11, BOX_BOOL = 12, UNBOX_INT = 13, UNBOX_BOOL = 14;
+	// lists, LIST is followed by the number of elements, and opts
+	static final int LIST = 15, PREFIX = 16, OPT = 17, EMPTY = 18, GET = 19, DEF = 20;
+	// statements; jumps are followed by the target address
+	static final int PRINT_INT = 21, PRINT_BOOL = 22, PRINT_VALUE = 23, GOTO = 24, IF_FALSE = 25, IF_TRUE = 26;
+	// for loops; NEXT is followed by the depth and the slot of the variable and by the exit address
+	static final int ITER = 27, NEXT_INT = 28, NEXT_BOOL = 29, NEXT_VALUE = 30, HALT = 31;
+
+	private Opcode() {
+	}
+}
@@ -0,0 +1,183 @@
+package visitors.bytecode;
+
+import static visitors.bytecode.Opcode.*;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import visitors.evaluation.BoolValue;
+import visitors.evaluation.EvaluatorException;
+import visitors.evaluation.IntValue;
+import visitors.evaluation.ListValue;
+import visitors.evaluation.OptValue;
+import visitors.evaluation.Value;
+
+/*
+ * executes compiled programs with a switch-dispatched loop; the stacks and
+ * the frames are allocated once, with the sizes computed by the compiler,
+ * since scope levels need no frame of their own at run time: a variable is
+ * never read before being declared in its current scope level
+ */
+
+public class VM {
+
+	private final PrintWriter p;
+
+	public VM(PrintWriter p) {
+		this.p = p;
+	}
+
+	public void run(Code program) {
+		final int[] code = program.code;
+		final int[] ints = new int[program.maxInts];
+		final Value[] values = new Value[program.maxValues];
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		final Iterator<Value>[] loops = new Iterator[program.maxLoops];
+		final int[][] intSlots = new int[program.frameSizes.length][];
+		final Value[][] valueSlots = new Value[program.frameSizes.length][];
+		for (int depth = 0; depth < program.frameSizes.length; depth++) {
+			intSlots[depth] = new int[program.frameSizes[depth]];
+			valueSlots[depth] = new Value[program.frameSizes[depth]];
+		}
+		int pc = 0, sp = 0, vp = 0, lp = 0; // the heights of the int, value and iterator stacks
+		while (true)
+			switch (code[pc++]) {
+			case CONST:
+				ints[sp++] = code[pc++];
+				break;
+			case LOAD_INT:
+				ints[sp++] = intSlots[code[pc]][code[pc + 1]];
+				pc += 2;
+				break;
+			case LOAD_VALUE:
+				values[vp++] = valueSlots[code[pc]][code[pc + 1]];
+				pc += 2;
+				break;
+			case STORE_INT:
+				intSlots[code[pc]][code[pc + 1]] = ints[--sp];
+				pc += 2;
+				break;
+			case STORE_VALUE:
+				valueSlots[code[pc]][code[pc + 1]] = values[--vp];
+				values[vp] = null;
+				pc += 2;
+				break;
+			case ADD:
+				sp--;
+				ints[sp - 1] += ints[sp];
+				break;
+			case MUL:
+				sp--;
+				ints[sp - 1] *= ints[sp];
+				break;
+			case NEG:
+				ints[sp - 1] = -ints[sp - 1];
+				break;
+			case NOT:
+				ints[sp - 1] ^= 1;
+				break;
+			case EQ_INT:
+				sp--;
+				ints[sp - 1] = ints[sp - 1] == ints[sp] ? 1 : 0;
+				break;
+			case EQ_VALUE:
+				vp -= 2;
+				ints[sp++] = values[vp].equals(values[vp + 1]) ? 1 : 0;
+				values[vp] = values[vp + 1] = null;
+				break;
+			case BOX_INT:
+				values[vp++] = IntValue.of(ints[--sp]);
+				break;
+			case BOX_BOOL:
+				values[vp++] = BoolValue.of(ints[--sp] != 0);
+				break;
+			case UNBOX_INT:
+				ints[sp++] = values[--vp].asInt();
+				values[vp] = null;
+				break;
+			case UNBOX_BOOL:
+				ints[sp++] = values[--vp].asBool() ? 1 : 0;
+				values[vp] = null;
+				break;
+			case LIST: {
+				int length = code[pc++];
+				vp -= length;
+				values[vp] = new ListValue(Arrays.asList(values).subList(vp, vp + length)); // copies the elements
+				Arrays.fill(values, vp + 1, vp + length, null);
+				vp++;
+				break;
+			}
+			case PREFIX:
+				vp--;
+				values[vp - 1] = values[vp].asList().prefix(values[vp - 1]);
+				values[vp] = null;
+				break;
+			case OPT:
+				values[vp - 1] = new OptValue(values[vp - 1]);
+				break;
+			case EMPTY: {
+				OptValue opt = new OptValue(values[vp - 1].asOpt());
+				opt.modifyEmpty();
+				values[vp - 1] = opt;
+				break;
+			}
+			case GET: {
+				OptValue opt = values[vp - 1].asOpt();
+				if (opt.isEmpty())
+					throw new EvaluatorException("Expecting a opt value not a empty opt");
+				values[vp - 1] = opt.getValue();
+				break;
+			}
+			case DEF:
+				ints[sp++] = values[--vp].asOpt().isEmpty() ? 0 : 1;
+				values[vp] = null;
+				break;
+			case PRINT_INT:
+				p.println(ints[--sp]);
+				break;
+			case PRINT_BOOL:
+				p.println(ints[--sp] != 0);
+				break;
+			case PRINT_VALUE:
+				p.println(values[--vp]);
+				values[vp] = null;
+				break;
+			case GOTO:
+				pc = code[pc];
+				break;
+			case IF_FALSE:
+				pc = ints[--sp] == 0 ? code[pc] : pc + 1;
+				break;
+			case IF_TRUE:
+				pc = ints[--sp] != 0 ? code[pc] : pc + 1;
+				break;
+			case ITER:
+				loops[lp++] = values[--vp].asList().iterator();
+				values[vp] = null;
+				break;
+			case NEXT_INT:
+			case NEXT_BOOL:
+			case NEXT_VALUE: {
+				Iterator<Value> loop = loops[lp - 1];
+				if (!loop.hasNext()) {
+					loops[--lp] = null;
+					pc = code[pc + 2];
+					break;
+				}
+				Value value = loop.next();
+				int depth = code[pc], slot = code[pc + 1];
+				if (code[pc - 1] == NEXT_VALUE)
+					valueSlots[depth][slot] = value;
+				else
+					intSlots[depth][slot] = code[pc - 1] == NEXT_INT ? value.asInt() : value.asBool() ? 1 : 0;
+				pc += 3;
+				break;
+			}
+			case HALT:
+				return;
+			default:
+				throw new IllegalStateException("Unknown opcode " + code[pc - 1]);
+			}
+	}
+}
@@ -0,0 +1,482 @@
+package visitors.closure;
+
+import static visitors.typechecking.PrimtType.BOOL;
+import static visitors.typechecking.PrimtType.INT;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import parser.ast.Exp;
+import parser.ast.ExpSeq;
+import parser.ast.Ident;
+import parser.ast.Prog;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+import visitors.Visitor;
+import visitors.evaluation.BoolValue;
+import visitors.evaluation.EvaluatorException;
+import visitors.evaluation.IntValue;
+import visitors.evaluation.ListValue;
+import visitors.evaluation.OptValue;
+import visitors.evaluation.Value;
+import visitors.resolution.Resolver;
+import visitors.typechecking.ListType;
+import visitors.typechecking.OptType;
+import visitors.typechecking.Type;
+
+/*
+ * compiles a type checked program into a tree of closures, walked once:
+ * expressions of type INT become IntSuppliers, of type BOOL BooleanSuppliers
+ * and all the others Suppliers of values, while statements become Runnables;
+ * children and variables are bound when the closures are created, hence
+ * running the program does no visitor dispatch and no type test
+ *
+ * each resolved address is bound to a single mutable cell for the whole run,
+ * since scope levels need no frame of their own: a variable is never read
+ * before being declared in its current scope level; as in the bytecode
+ * compiler, the type of a variable is the one of its most recently compiled
+ * declaration
+ */
+
+public class ClosureCompiler implements Visitor<ClosureCompiler.Compiled> {
+
+	/* a compiled node: its closure and, for expressions, its static type */
+	static final class Compiled {
+		final Type type;
+		final Object closure;
+
+		Compiled(Type type, Object closure) {
+			this.type = type;
+			this.closure = closure;
+		}
+	}
+
+	/* the variable at an address, which uses the field of its type */
+	private static final class Cell {
+		int intValue;
+		boolean boolValue;
+		Value value;
+	}
+
+	private final PrintWriter p;
+	private Cell[][] cells = new Cell[1][];
+	private Type[][] slotTypes = new Type[1][];
+
+	private List<Exp> elements; // the elements of the list literal being compiled
+
+	private ClosureCompiler(PrintWriter p) {
+		this.p = p;
+	}
+
+	/* the closure of the program, printing on p */
+	public static Runnable compile(Prog prog, PrintWriter p) {
+		prog.accept(new Resolver());
+		return (Runnable) prog.accept(new ClosureCompiler(p)).closure;
+	}
+
+	// auxiliary methods
+
+	private static Compiled stmt(Runnable closure) {
+		return new Compiled(null, closure);
+	}
+
+	private static Compiled ofInt(IntSupplier closure) {
+		return new Compiled(INT, closure);
+	}
+
+	private static Compiled ofBool(BooleanSupplier closure) {
+		return new Compiled(BOOL, closure);
+	}
+
+	private static Compiled ofValue(Type type, Supplier<Value> closure) {
+		return new Compiled(type, closure);
+	}
+
+	private IntSupplier intOf(Exp exp) {
+		return (IntSupplier) exp.accept(this).closure;
+	}
+
+	private BooleanSupplier boolOf(Exp exp) {
+		return (BooleanSupplier) exp.accept(this).closure;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Supplier<Value> valueOf(Compiled compiled) {
+		return (Supplier<Value>) compiled.closure;
+	}
+
+	private Supplier<Value> valueOf(Exp exp) {
+		return valueOf(exp.accept(this));
+	}
+
+	/* the closure of a compiled expression whose value must be boxed */
+	private static Supplier<Value> boxed(Compiled compiled) {
+		if (compiled.type == INT) {
+			IntSupplier exp = (IntSupplier) compiled.closure;
+			return () -> IntValue.of(exp.getAsInt());
+		}
+		if (compiled.type == BOOL) {
+			BooleanSupplier exp = (BooleanSupplier) compiled.closure;
+			return () -> BoolValue.of(exp.getAsBoolean());
+		}
+		return valueOf(compiled);
+	}
+
+	/* the closure of a compiled expression whose value is unboxed according to type */
+	private static Compiled unboxed(Type type, Supplier<Value> exp) {
+		if (type == INT)
+			return ofInt(() -> exp.get().asInt());
+		if (type == BOOL)
+			return ofBool(() -> exp.get().asBool());
+		return ofValue(type, exp);
+	}
+
+	private Cell declare(Ident ident, Type type) {
+		int depth = ident.getDepth(), slot = ident.getSlot();
+		if (depth >= cells.length) {
+			cells = Arrays.copyOf(cells, depth + 1);
+			slotTypes = Arrays.copyOf(slotTypes, depth + 1);
+		}
+		if (cells[depth] == null || slot >= cells[depth].length) {
+			int length = Math.max(8, slot + 1);
+			cells[depth] = Arrays.copyOf(cells[depth] == null ? new Cell[0] : cells[depth], length);
+			slotTypes[depth] = Arrays.copyOf(slotTypes[depth] == null ? new Type[0] : slotTypes[depth], length);
+		}
+		if (cells[depth][slot] == null)
+			cells[depth][slot] = new Cell();
+		slotTypes[depth][slot] = type;
+		return cells[depth][slot];
+	}
+
+	private Cell cell(Ident ident) {
+		return cells[ident.getDepth()][ident.getSlot()];
+	}
+
+	private Type slotType(Ident ident) {
+		return slotTypes[ident.getDepth()][ident.getSlot()];
+	}
+
+	private static Runnable store(Cell cell, Type type, Compiled exp) {
+		if (type == INT) {
+			IntSupplier value = (IntSupplier) exp.closure;
+			return () -> cell.intValue = value.getAsInt();
+		}
+		if (type == BOOL) {
+			BooleanSupplier value = (BooleanSupplier) exp.closure;
+			return () -> cell.boolValue = value.getAsBoolean();
+		}
+		Supplier<Value> value = valueOf(exp);
+		return () -> cell.value = value.get();
+	}
+
+	private Runnable block(StmtSeq block) {
+		return (Runnable) block.accept(this).closure;
+	}
+
+	private static Runnable sequence(List<Runnable> stmts) {
+		switch (stmts.size()) {
+		case 0:
+			return () -> {
+			};
+		case 1:
+			return stmts.get(0);
+		case 2:
+			Runnable first = stmts.get(0), second = stmts.get(1);
+			return () -> {
+				first.run();
+				second.run();
+			};
+		default:
+			Runnable[] all = stmts.toArray(new Runnable[0]);
+			return () -> {
+				for (Runnable stmt : all)
+					stmt.run();
+			};
+		}
+	}
+
+	@Override
+	public Compiled visitProg(StmtSeq stmtSeq) {
+		return stmt(block(stmtSeq));
+	}
+
+	// statements
+
+	@Override
+	public Compiled visitAssignStmt(Ident ident, Exp exp) {
+		return stmt(store(cell(ident), slotType(ident), exp.accept(this)));
+	}
+
+	@Override
+	public Compiled visitVarStmt(Ident ident, Exp exp) {
+		Compiled value = exp.accept(this);
+		return stmt(store(declare(ident, value.type), value.type, value));
+	}
+
+	@Override
+	public Compiled visitPrintStmt(Exp exp) {
+		Compiled value = exp.accept(this);
+		if (value.type == INT) {
+			IntSupplier closure = (IntSupplier) value.closure;
+			return stmt(() -> p.println(closure.getAsInt()));
+		}
+		if (value.type == BOOL) {
+			BooleanSupplier closure = (BooleanSupplier) value.closure;
+			return stmt(() -> p.println(closure.getAsBoolean()));
+		}
+		Supplier<Value> closure = valueOf(value);
+		return stmt(() -> p.println(closure.get()));
+	}
+
+	@Override
+	public Compiled visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
+		Compiled list = exp.accept(this);
+		Supplier<Value> values = valueOf(list);
+		Type elemType = list.type.getListElemType();
+		Cell cell = declare(ident, elemType);
+		Runnable body = block(block);
+		if (elemType == INT)
+			return stmt(() -> {
+				for (Value value : values.get().asList()) {
+					cell.intValue = value.asInt();
+					body.run();
+				}
+			});
+		if (elemType == BOOL)
+			return stmt(() -> {
+				for (Value value : values.get().asList()) {
+					cell.boolValue = value.asBool();
+					body.run();
+				}
+			});
+		return stmt(() -> {
+			for (Value value : values.get().asList()) {
+				cell.value = value;
+				body.run();
+			}
+		});
+	}
+
+	@Override
+	public Compiled visitIfStmt(Exp exp, StmtSeq block) {
+		BooleanSupplier condition = boolOf(exp);
+		Runnable body = block(block);
+		return stmt(() -> {
+			if (condition.getAsBoolean())
+				body.run();
+		});
+	}
+
+	@Override
+	public Compiled visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		BooleanSupplier condition = boolOf(exp);
+		Runnable body = block(block), other = block(option);
+		return stmt(() -> {
+			if (condition.getAsBoolean())
+				body.run();
+			else
+				other.run();
+		});
+	}
+
+	@Override
+	public Compiled visitDoStmt(StmtSeq stmt, Exp exp) {
+		Runnable body = block(stmt);
+		BooleanSupplier condition = boolOf(exp);
+		return stmt(() -> {
+			do
+				body.run();
+			while (condition.getAsBoolean());
+		});
+	}
+
+	// sequences
+
+	@Override
+	public Compiled visitSingleStmt(Stmt stmt) {
+		return stmt.accept(this);
+	}
+
+	@Override
+	public Compiled visitMoreStmt(Stmt first, StmtSeq rest) {
+		Runnable head = (Runnable) first.accept(this).closure;
+		Runnable tail = block(rest);
+		return stmt(sequence(List.of(head, tail)));
+	}
+
+	@Override
+	public Compiled visitManyStmt(List<Stmt> stmts) {
+		List<Runnable> closures = new ArrayList<>(stmts.size());
+		for (Stmt stmt : stmts)
+			closures.add((Runnable) stmt.accept(this).closure);
+		return stmt(sequence(closures));
+	}
+
+	// the elements of list literals are collected, and compiled by visitListLiteral
+
+	@Override
+	public Compiled visitSingleExp(Exp exp) {
+		elements.add(exp);
+		return null;
+	}
+
+	@Override
+	public Compiled visitMoreExp(Exp first, ExpSeq rest) {
+		elements.add(first);
+		rest.accept(this);
+		return null;
+	}
+
+	@Override
+	public Compiled visitManyExp(List<Exp> exps) {
+		elements.addAll(exps);
+		return null;
+	}
+
+	// expressions
+
+	@Override
+	public Compiled visitAdd(Exp left, Exp right) {
+		IntSupplier l = intOf(left), r = intOf(right);
+		return ofInt(() -> l.getAsInt() + r.getAsInt());
+	}
+
+	@Override
+	public Compiled visitMul(Exp left, Exp right) {
+		IntSupplier l = intOf(left), r = intOf(right);
+		return ofInt(() -> l.getAsInt() * r.getAsInt());
+	}
+
+	@Override
+	public Compiled visitPrefix(Exp left, Exp right) {
+		Supplier<Value> element = boxed(left.accept(this));
+		Compiled list = right.accept(this);
+		Supplier<Value> tail = valueOf(list);
+		return ofValue(list.type, () -> {
+			Value value = element.get();
+			return tail.get().asList().prefix(value);
+		});
+	}
+
+	@Override
+	public Compiled visitAnd(Exp left, Exp right) {
+		BooleanSupplier l = boolOf(left), r = boolOf(right);
+		return ofBool(() -> l.getAsBoolean() && r.getAsBoolean());
+	}
+
+	@Override
+	public Compiled visitEqual(Exp left, Exp right) {
+		Compiled l = left.accept(this), r = right.accept(this);
+		if (l.type == INT) {
+			IntSupplier a = (IntSupplier) l.closure, b = (IntSupplier) r.closure;
+			return ofBool(() -> a.getAsInt() == b.getAsInt());
+		}
+		if (l.type == BOOL) {
+			BooleanSupplier a = (BooleanSupplier) l.closure, b = (BooleanSupplier) r.closure;
+			return ofBool(() -> a.getAsBoolean() == b.getAsBoolean());
+		}
+		Supplier<Value> a = valueOf(l), b = valueOf(r);
+		return ofBool(() -> {
+			Value value = a.get();
+			return value.equals(b.get());
+		});
+	}
+
+	@Override
+	public Compiled visitSign(Exp exp) {
+		IntSupplier operand = intOf(exp);
+		return ofInt(() -> -operand.getAsInt());
+	}
+
+	@Override
+	public Compiled visitNot(Exp exp) {
+		BooleanSupplier operand = boolOf(exp);
+		return ofBool(() -> !operand.getAsBoolean());
+	}
+
+	@Override
+	public Compiled visitOptLiteral(Exp exp) {
+		Compiled value = exp.accept(this);
+		Supplier<Value> operand = boxed(value);
+		return ofValue(new OptType(value.type), () -> new OptValue(operand.get()));
+	}
+
+	@Override
+	public Compiled visitEmpty(Exp exp) {
+		Compiled value = exp.accept(this);
+		Supplier<Value> operand = valueOf(value);
+		return ofValue(value.type, () -> {
+			OptValue opt = new OptValue(operand.get().asOpt());
+			opt.modifyEmpty();
+			return opt;
+		});
+	}
+
+	@Override
+	public Compiled visitGet(Exp exp) {
+		Compiled value = exp.accept(this);
+		Supplier<Value> operand = valueOf(value);
+		return unboxed(value.type.getOptElemType(), () -> {
+			OptValue opt = operand.get().asOpt();
+			if (opt.isEmpty())
+				throw new EvaluatorException("Expecting a opt value not a empty opt");
+			return opt.getValue();
+		});
+	}
+
+	@Override
+	public Compiled visitDef(Exp exp) {
+		Supplier<Value> operand = valueOf(exp);
+		return ofBool(() -> !operand.get().asOpt().isEmpty());
+	}
+
+	@Override
+	public Compiled visitListLiteral(ExpSeq exps) {
+		List<Exp> outer = elements;
+		elements = new ArrayList<>();
+		exps.accept(this);
+		List<Exp> inner = elements;
+		elements = outer;
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Supplier<Value>[] closures = new Supplier[inner.size()];
+		Type type = null;
+		for (int i = 0; i < closures.length; i++) {
+			Compiled element = inner.get(i).accept(this);
+			type = element.type;
+			closures[i] = boxed(element);
+		}
+		return ofValue(new ListType(type), () -> {
+			Value[] values = new Value[closures.length];
+			for (int i = 0; i < values.length; i++)
+				values[i] = closures[i].get();
+			return new ListValue(Arrays.asList(values));
+		});
+	}
+
+	@Override
+	public Compiled visitIntLiteral(int value) {
+		return ofInt(() -> value);
+	}
+
+	@Override
+	public Compiled visitBoolLiteral(Boolean value) {
+		boolean constant = value;
+		return ofBool(() -> constant);
+	}
+
+	@Override
+	public Compiled visitIdent(Ident ident) {
+		Cell cell = cell(ident);
+		Type type = slotType(ident);
+		if (type == INT)
+			return ofInt(() -> cell.intValue);
+		if (type == BOOL)
+			return ofBool(() -> cell.boolValue);
+		return ofValue(type, () -> cell.value);
+	}
+}
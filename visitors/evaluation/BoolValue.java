@@ -1,9 +1,16 @@
 package visitors.evaluation;
 
-public class BoolValue extends PrimValue<Boolean> {
+public class BoolValue extends PrimValue {
+	public static final BoolValue TRUE = new BoolValue(true), FALSE = new BoolValue(false);
 
-	public BoolValue(Boolean value) {
-		super(value);
+	final boolean value;
+
+	private BoolValue(boolean value) {
+		this.value = value;
+	}
+
+	public static BoolValue of(boolean b) {
+		return b ? TRUE : FALSE;
 	}
 
 	@Override
@@ -12,11 +19,21 @@ public class BoolValue extends PrimValue<Boolean> {
 			return true;
 		if (!(obj instanceof BoolValue))
 			return false;
-		return value.equals(((BoolValue) obj).value);
+		return value == ((BoolValue) obj).value;
+	}
+
+	@Override
+	public int hashCode() {
+		return Boolean.hashCode(value);
+	}
+
+	@Override
+	public String toString() {
+		return Boolean.toString(value);
 	}
 
 	@Override
 	public boolean asBool() {
 		return value;
 	}
-}
\ No newline at end of file
+}
@@ -1,37 +1,305 @@
 package visitors.evaluation;
 
+import static visitors.typechecking.PrimtType.BOOL;
+import static visitors.typechecking.PrimtType.INT;
+
 import environments.EnvironmentException;
-import environments.GenEnvironment;
+import environments.FrameEnvironment;
+import parser.ast.AST;
 import parser.ast.Exp;
 import parser.ast.ExpSeq;
 import parser.ast.Ident;
-import parser.ast.SimpleIdent;
+import parser.ast.ListLiteral;
+import parser.ast.ManyExp;
+import parser.ast.Prefix;
 import parser.ast.Stmt;
 import parser.ast.StmtSeq;
+import visitors.BoolVisitor;
+import visitors.IntVisitor;
 import visitors.Visitor;
+import visitors.optimization.IndependentLoops;
+import visitors.resolution.Resolver;
+import visitors.typechecking.Type;
 import java.io.PrintWriter;
-
-public class Eval implements Visitor<Value> {
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Eval implements Visitor<Value>, AutoCloseable {
+
+	/* the default length from which lists of ints and bools are stored off the heap */
+	public static final int OFF_HEAP_THRESHOLD = 1 << 20;
 
 	private PrintWriter p;
+	private final int offHeapThreshold;
+	private final OffHeapArena arena; // the off-heap lists of the run
+	private final ValueFactory values; // hash-conses lists and opts if not null
+	private final ForkJoinPool pool; // runs the independent loops if not null
+	private final Set<StmtSeq> independentLoops; // the bodies of the loops run by the pool
+	private final AtomicBoolean cancelled; // stops the chunk run by a fork, null if not a fork
 
 	public Eval(PrintWriter p) {
+		this(p, OFF_HEAP_THRESHOLD);
+	}
+
+	public Eval(PrintWriter p, int offHeapThreshold) {
+		this(p, offHeapThreshold, null);
+	}
+
+	/* with values, lists and opts are hash-consed, hence never stored as lists of ints or off the heap */
+	public Eval(PrintWriter p, int offHeapThreshold, ValueFactory values) {
+		this(p, offHeapThreshold, values, null);
+	}
+
+	/* with pool, the iterations of the loops found by IndependentLoops run in parallel */
+	public Eval(PrintWriter p, int offHeapThreshold, ValueFactory values, ForkJoinPool pool) {
 		this.p = p;
+		this.offHeapThreshold = offHeapThreshold;
+		this.arena = new OffHeapArena();
+		this.values = values;
+		this.pool = pool;
+		this.independentLoops = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.cancelled = null;
+		this.env = new FrameEnvironment<>();
+	}
+
+	/*
+	 * an evaluator of the iterations of an independent loop of parent, which
+	 * prints to p and stops at the next iteration once cancelled is set; it
+	 * shares the lists and the variables of parent, and runs nested loops
+	 * sequentially
+	 */
+	protected Eval(Eval parent, PrintWriter p, AtomicBoolean cancelled) {
+		this.p = p;
+		this.offHeapThreshold = parent.offHeapThreshold;
+		this.arena = parent.arena;
+		this.values = parent.values;
+		this.pool = null;
+		this.independentLoops = parent.independentLoops;
+		this.cancelled = cancelled;
+		this.env = parent.env.fork();
+	}
+
+	/* overridden by the subclasses, whose forks must evaluate in the same way */
+	protected Eval fork(PrintWriter p, AtomicBoolean cancelled) {
+		return new Eval(this, p, cancelled);
+	}
+
+	private final Resolver resolver = new Resolver(); // variables are accessed by their lexical addresses
+	private final FrameEnvironment<Value> env;
+
+	/*
+	 * evaluation of int and bool subexpressions with no intermediate values:
+	 * the operators are evaluated on primitives by the visitors below, and
+	 * only the other expressions, such as variables and get, are evaluated
+	 * by this visitor
+	 */
+
+	private final IntVisitor intEval = new IntEval();
+	private final BoolVisitor boolEval = new BoolEval();
+
+	protected int evalInt(Exp exp) {
+		return exp.acceptInt(intEval);
+	}
+
+	protected boolean evalBool(Exp exp) {
+		return exp.acceptBool(boolEval);
+	}
+
+	private class IntEval implements IntVisitor {
+
+		@Override
+		public int visitAdd(Exp left, Exp right) {
+			return evalInt(left) + evalInt(right);
+		}
+
+		@Override
+		public int visitMul(Exp left, Exp right) {
+			return evalInt(left) * evalInt(right);
+		}
+
+		@Override
+		public int visitSign(Exp exp) {
+			return -evalInt(exp);
+		}
+
+		@Override
+		public int visitIntLiteral(int value) {
+			return value;
+		}
+
+		@Override
+		public int visitIdent(Ident ident) {
+			return intOf(Eval.this.visitIdent(ident));
+		}
+
+		@Override
+		public int visitGet(Exp exp) {
+			return intOf(Eval.this.visitGet(exp));
+		}
+
+		@Override
+		public int visitOther(Exp exp) {
+			return intOf(exp.accept(Eval.this));
+		}
+	}
+
+	private class BoolEval implements BoolVisitor {
+
+		@Override
+		public boolean visitAnd(Exp left, Exp right) {
+			return evalBool(left) && evalBool(right);
+		}
+
+		@Override
+		public boolean visitNot(Exp exp) {
+			return !evalBool(exp);
+		}
+
+		@Override
+		public boolean visitEqual(Exp left, Exp right) {
+			return evalEqual(left, right);
+		}
+
+		@Override
+		public boolean visitBoolLiteral(boolean value) {
+			return value;
+		}
+
+		@Override
+		public boolean visitDef(Exp exp) {
+			return boolOf(Eval.this.visitDef(exp));
+		}
+
+		@Override
+		public boolean visitIdent(Ident ident) {
+			return boolOf(Eval.this.visitIdent(ident));
+		}
+
+		@Override
+		public boolean visitGet(Exp exp) {
+			return boolOf(Eval.this.visitGet(exp));
+		}
+
+		@Override
+		public boolean visitOther(Exp exp) {
+			return boolOf(exp.accept(Eval.this));
+		}
+	}
+
+	/* ints and bools are compared unboxed if the type checker has annotated the operands */
+	private boolean evalEqual(Exp left, Exp right) {
+		Type type = left.getType();
+		if (type == INT)
+			return evalInt(left) == evalInt(right);
+		if (type == BOOL)
+			return evalBool(left) == evalBool(right);
+		return left.accept(this).equals(right.accept(this));
+	}
+
+	/* the int value of a variable, of get, or of an expression which is not an int operator */
+	protected int intOf(Value value) {
+		return value.asInt();
+	}
+
+	/* the bool value of a variable, of get, or of an expression which is not a bool operator */
+	protected boolean boolOf(Value value) {
+		return value.asBool();
+	}
+
+	protected ListValue listOf(Exp exp) {
+		return exp.accept(this).asList();
+	}
+
+	/*
+	 * lists whose elements the type checker has proven to be ints are built
+	 * as lists of ints, with no boxed element
+	 */
+
+	private ListValue prefixInt(int el, ListValue list) {
+		if (values != null)
+			return values.prefix(IntValue.of(el), list);
+		list = offHeap(list, INT);
+		if (list instanceof IntListValue)
+			return ((IntListValue) list).prefix(el);
+		if (list instanceof OffHeapListValue)
+			return ((OffHeapListValue) list).prefix(el);
+		return list.prefix(IntValue.of(el));
+	}
+
+	/* lists of ints and bools reaching the threshold are moved off the heap before growing further */
+	private ListValue offHeap(ListValue list, Type elemType) {
+		if (list.size() < offHeapThreshold || list instanceof OffHeapListValue || elemType != INT && elemType != BOOL)
+			return list;
+		return OffHeapListValue.copyOf(list, elemType == INT, arena);
+	}
+
+	private ListValue prefix(Value el, ListValue list, Type elemType) {
+		return values != null ? values.prefix(el, list) : offHeap(list, elemType).prefix(el);
+	}
+
+	protected OptValue opt(Value value) {
+		return values != null ? values.opt(value) : new OptValue(value);
+	}
+
+	/* the empty opt of the same type as opt */
+	protected OptValue emptyOpt(OptValue opt) {
+		if (values != null)
+			return values.empty(opt);
+		OptValue empty = new OptValue(opt);
+		empty.modifyEmpty();
+		return empty;
 	}
-	private final GenEnvironment<Value> env = new GenEnvironment<>();
 
 	// dynamic semantics for programs; no value returned by the visitor
 
 	@Override
 	public Value visitProg(StmtSeq stmtSeq) {
 		try {
+			stmtSeq.accept(resolver);
+			findIndependentLoops(stmtSeq);
 			stmtSeq.accept(this);
 		} catch (EnvironmentException e) { // undefined variable
 			throw new EvaluatorException(e);
+		} finally {
+			close();
 		}
 		return null;
 	}
 
+	private void findIndependentLoops(AST node) {
+		if (pool != null)
+			independentLoops.addAll(IndependentLoops.find(node));
+	}
+
+	/* frees the off-heap lists, which must not be used anymore */
+	@Override
+	public void close() {
+		arena.close();
+	}
+
+	/*
+	 * dynamic semantics of a single top-level statement, for streaming execution;
+	 * the environment is kept between calls
+	 */
+	public void evalTopStmt(Stmt stmt) {
+		try {
+			stmt.accept(resolver);
+			findIndependentLoops(stmt);
+			stmt.accept(this);
+		} catch (EnvironmentException e) { // undefined variable
+			throw new EvaluatorException(e);
+		}
+	}
+
 	// dynamic semantics for statements; no value returned by the visitor
 
 	@Override
@@ -40,18 +308,122 @@ public class Eval implements Visitor<Value> {
 		return null;
 	}
 
+	/*
+	 * the list is not built if it is a chain of :: or a list literal: the
+	 * prefixed elements, the elements of the literal and the list at the end
+	 * of the chain are evaluated in the same order, and fail in the same way,
+	 * as when the list is built, and then iterated in place
+	 */
 	@Override
 	public Value visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
-		ListValue list = exp.accept(this).asList();
-		for (Value val : list) {
-			env.enterLevel();
-			env.dec(ident, val);
-			block.accept(this);
-			env.exitLevel();
+		List<Value> heads = new ArrayList<>();
+		while (exp instanceof Prefix) {
+			heads.add(((Prefix) exp).getLeft().accept(this));
+			exp = ((Prefix) exp).getRight();
 		}
+		Iterable<Value> rest = exp instanceof ListLiteral && ((ListLiteral) exp).getExps() instanceof ManyExp
+				? elementsOf((ManyExp) ((ListLiteral) exp).getExps())
+				: listOf(exp);
+		if (pool != null && independentLoops.contains(block)) {
+			if (rest instanceof IntListValue || rest instanceof OffHeapListValue) // indexed in place, with no boxing
+				iterateInParallel(ident, heads, (ListValue) rest, block);
+			else { // only the references to the values are copied
+				for (Value val : rest)
+					heads.add(val);
+				iterateInParallel(ident, heads, new ListValue(), block);
+			}
+			return null;
+		}
+		for (Value val : heads)
+			iterate(ident, val, block);
+		for (Value val : rest) // the ints of lists of ints are boxed only if not small
+			iterate(ident, val, block);
 		return null;
 	}
 
+	private List<Value> elementsOf(ManyExp exps) {
+		List<Value> elements = new ArrayList<>(exps.getItems().size());
+		for (Exp exp : exps.getItems())
+			elements.add(exp.accept(this));
+		return elements;
+	}
+
+	private void iterate(Ident ident, Value val, StmtSeq block) {
+		checkCancelled();
+		env.enterLevel();
+		env.dec(ident, val);
+		block.accept(this);
+		env.exitLevel();
+	}
+
+	/* the output of a chunk of iterations, and the error which stopped them, if any */
+	private static final class Chunk {
+		final String output;
+		final Throwable error;
+
+		Chunk(String output, Throwable error) {
+			this.output = output;
+			this.error = error;
+		}
+	}
+
+	private void checkCancelled() {
+		if (cancelled != null && cancelled.get())
+			throw new CancellationException();
+	}
+
+	/*
+	 * the elements, heads followed by tail, are split into chunks of
+	 * consecutive iterations, each run by a fork printing to its own buffer;
+	 * the buffers are printed in the order of the chunks, and the first error
+	 * is thrown after the output of the iterations before it, hence the output
+	 * is the same as the one of the sequential loop
+	 *
+	 * the later chunks are then cancelled, and this method returns only when
+	 * every chunk has stopped, since the forks may still read the lists of the
+	 * run, which are freed when it ends
+	 */
+	private void iterateInParallel(Ident ident, List<Value> heads, ListValue tail, StmtSeq block) {
+		int size = heads.size() + tail.size();
+		int chunks = Math.min(size, 4 * pool.getParallelism());
+		AtomicBoolean cancelled = new AtomicBoolean();
+		List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(chunks);
+		try {
+			for (int i = 0; i < chunks; i++) {
+				int from = (int) ((long) i * size / chunks), to = (int) ((long) (i + 1) * size / chunks);
+				tasks.add(pool.submit(() -> {
+					StringWriter output = new StringWriter();
+					Eval worker = fork(new PrintWriter(output), cancelled);
+					try {
+						for (int j = from; j < Math.min(to, heads.size()); j++)
+							worker.iterate(ident, heads.get(j), block);
+						Iterator<Value> it = tail.iterator(Math.max(from - heads.size(), 0),
+								Math.max(to - heads.size(), 0));
+						while (it.hasNext())
+							worker.iterate(ident, it.next(), block);
+						return new Chunk(output.toString(), null);
+					} catch (Throwable e) {
+						return new Chunk(output.toString(), e);
+					}
+				}));
+			}
+			for (ForkJoinTask<Chunk> task : tasks) {
+				Chunk chunk = task.join();
+				p.print(chunk.output);
+				if (chunk.error instanceof RuntimeException)
+					throw (RuntimeException) chunk.error;
+				if (chunk.error instanceof Error)
+					throw (Error) chunk.error;
+				if (chunk.error != null)
+					throw new EvaluatorException(chunk.error.getMessage(), chunk.error);
+			}
+		} finally {
+			cancelled.set(true);
+			for (ForkJoinTask<Chunk> task : tasks)
+				task.quietlyJoin(); // the tasks are never cancelled, hence they are waited for until they stop
+		}
+	}
+
 	@Override
 	public Value visitPrintStmt(Exp exp) {
 		p.println(exp.accept(this));
@@ -80,16 +452,23 @@ public class Eval implements Visitor<Value> {
 		return null;
 	}
 
+	@Override
+	public Value visitManyStmt(List<Stmt> stmts) {
+		for (Stmt stmt : stmts)
+			stmt.accept(this);
+		return null;
+	}
+
 	// dynamic semantics of expressions; a value is returned by the visitor
 
 	@Override
 	public Value visitAdd(Exp left, Exp right) {
-		return new IntValue(left.accept(this).asInt() + right.accept(this).asInt());
+		return IntValue.of(evalInt(left) + evalInt(right));
 	}
 
 	@Override
 	public Value visitIntLiteral(int value) {
-		return new IntValue(value);
+		return IntValue.of(value);
 	}
 
 	@Override
@@ -99,23 +478,27 @@ public class Eval implements Visitor<Value> {
 
 	@Override
 	public Value visitMul(Exp left, Exp right) {
-		return new IntValue(left.accept(this).asInt() * right.accept(this).asInt());
+		return IntValue.of(evalInt(left) * evalInt(right));
 	}
 
 	@Override
 	public Value visitPrefix(Exp left, Exp right) {
+		if (left.getType() == INT) {
+			int el = evalInt(left);
+			return prefixInt(el, listOf(right));
+		}
 		Value el = left.accept(this);
-		return right.accept(this).asList().prefix(el);
+		return prefix(el, listOf(right), left.getType());
 	}
 
 	@Override
 	public Value visitSign(Exp exp) {
-		return new IntValue(-exp.accept(this).asInt());
+		return IntValue.of(-evalInt(exp));
 	}
 
 	@Override
-	public Value visitIdent(String name) {
-		return env.lookup(new SimpleIdent(name));
+	public Value visitIdent(Ident ident) {
+		return env.lookup(ident);
 	}
 
 	// dynamic semantics of sequences of expressions
@@ -123,17 +506,42 @@ public class Eval implements Visitor<Value> {
 
 	@Override
 	public Value visitSingleExp(Exp exp) {
-		return new ListValue(exp.accept(this), new ListValue());
+		if (values != null)
+			return values.prefix(exp.accept(this), values.empty());
+		if (exp.getType() == INT)
+			return new IntListValue(evalInt(exp));
+		return new ListValue().prefix(exp.accept(this));
 	}
 
 	@Override
 	public Value visitMoreExp(Exp first, ExpSeq rest) {
-		return new ListValue(first.accept(this), rest.accept(this).asList());
+		if (first.getType() == INT) {
+			int el = evalInt(first);
+			return prefixInt(el, rest.accept(this).asList());
+		}
+		Value el = first.accept(this);
+		return prefix(el, rest.accept(this).asList(), first.getType());
+	}
+
+	@Override
+	public Value visitManyExp(List<Exp> exps) {
+		if (values == null && exps.get(0).getType() == INT) {
+			int[] ints = new int[exps.size()];
+			for (int i = 0; i < ints.length; i++)
+				ints[i] = evalInt(exps.get(i));
+			return offHeap(new IntListValue(ints), INT);
+		}
+		List<Value> elements = new ArrayList<>(exps.size());
+		for (Exp exp : exps)
+			elements.add(exp.accept(this));
+		if (values != null)
+			return values.list(elements);
+		return offHeap(new ListValue(elements), exps.get(0).getType());
 	}
 
 	@Override
 	public Value visitIfStmt(Exp exp, StmtSeq block) {
-		if(exp.accept(this).asBool()) {
+		if(evalBool(exp)) {
 			env.enterLevel();
 			block.accept(this);
 			env.exitLevel();
@@ -143,7 +551,7 @@ public class Eval implements Visitor<Value> {
 
 	@Override
 	public Value visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
-		if(exp.accept(this).asBool()) {
+		if(evalBool(exp)) {
 			env.enterLevel();
 			block.accept(this);
 			env.exitLevel();
@@ -159,41 +567,39 @@ public class Eval implements Visitor<Value> {
 	@Override
 	public Value visitDoStmt(StmtSeq stmt, Exp exp) {
 		do {
+			checkCancelled();
 			env.enterLevel();
 			stmt.accept(this);
 			env.exitLevel();
-		}while(exp.accept(this).asBool());
+		}while(evalBool(exp));
 		return null;
 	}
 
 	@Override
 	public Value visitBoolLiteral(Boolean value) {
-		return new BoolValue(value);
+		return BoolValue.of(value);
 	}
 
 	@Override
 	public Value visitAnd(Exp left, Exp right) {
-		return new BoolValue(left.accept(this).asBool() && right.accept(this).asBool());
+		return BoolValue.of(evalBool(left) && evalBool(right));
 	}
 
 	@Override
 	public Value visitEqual(Exp left, Exp right) {
-		return new BoolValue(left.accept(this).equals(right.accept(this)));
+		return BoolValue.of(evalEqual(left, right));
 	}
 
 	@Override
 	public Value visitNot(Exp exp) {
-		return new BoolValue(!exp.accept(this).asBool());
+		return BoolValue.of(!evalBool(exp));
 	}
 
 	@Override
 	public Value visitEmpty(Exp exp) {
 		Value aux=exp.accept(this);
-		if(aux instanceof OptValue) {
-			OptValue opt=new OptValue(aux.asOpt());
-			opt.modifyEmpty();
-			return opt;
-		}
+		if(aux instanceof OptValue)
+			return emptyOpt(aux.asOpt());
 		throw new EvaluatorException("Expecting a opt value");
 	}
 
@@ -212,14 +618,14 @@ public class Eval implements Visitor<Value> {
 	public Value visitDef(Exp exp) {
 		Value aux=exp.accept(this);
 		if(aux instanceof OptValue) {
-			return new BoolValue(!aux.asOpt().isEmpty());
+			return BoolValue.of(!aux.asOpt().isEmpty());
 		}
 		throw new EvaluatorException("Expecting a opt value");
 	}
 
 	@Override
 	public Value visitOptLiteral(Exp exp) {
-		return new OptValue(exp.accept(this));
+		return opt(exp.accept(this));
 	}
 
 }
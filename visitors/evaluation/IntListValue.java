@@ -0,0 +1,164 @@
+package visitors.evaluation;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * immutable lists of ints, with no boxed elements; the elements are stored
+ * from the last to the first in an array shared with the longer lists built
+ * by prefixing, hence prefixing is O(1) amortized: the first list which
+ * prefixes an element to a given length claims the next free cell of the
+ * array, while the other ones copy the array
+ *
+ * lists of ints and lists of values with the same elements are equal and
+ * have the same hash code
+ */
+
+public class IntListValue extends ListValue {
+
+	/* the array of the elements, and the number of its cells claimed by some list */
+	private static final class Elements {
+		final int[] ints;
+		final AtomicInteger used;
+
+		Elements(int[] ints, int used) {
+			this.ints = ints;
+			this.used = new AtomicInteger(used);
+		}
+	}
+
+	private final Elements elements;
+	private final int length, hash;
+
+	private IntListValue(Elements elements, int length, int hash) {
+		this.elements = elements;
+		this.length = length;
+		this.hash = hash;
+	}
+
+	/* the list of the values, in the same order */
+	public IntListValue(int... values) {
+		int[] ints = new int[values.length];
+		int hash = 1;
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = values[values.length - 1 - i];
+			hash = 31 * hash + ints[i];
+		}
+		elements = new Elements(ints, ints.length);
+		length = ints.length;
+		this.hash = hash;
+	}
+
+	public IntListValue prefix(int el) {
+		int[] ints = elements.ints;
+		if (length < ints.length && elements.used.compareAndSet(length, length + 1)) {
+			ints[length] = el;
+			return new IntListValue(elements, length + 1, 31 * hash + el);
+		}
+		int[] copy = Arrays.copyOf(ints, Math.max(8, 2 * length));
+		copy[length] = el;
+		return new IntListValue(new Elements(copy, length + 1), length + 1, 31 * hash + el);
+	}
+
+	@Override
+	public ListValue prefix(Value el) {
+		return prefix(el.asInt());
+	}
+
+	@Override
+	public int size() {
+		return length;
+	}
+
+	/* the element at index, from the first one */
+	public int getInt(int index) {
+		return elements.ints[length - 1 - index];
+	}
+
+	/* iterates over the elements with no boxing */
+	public PrimitiveIterator.OfInt intIterator() {
+		return new PrimitiveIterator.OfInt() {
+			private int next = length - 1;
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public int nextInt() {
+				if (next < 0)
+					throw new NoSuchElementException();
+				return elements.ints[next--];
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Value> iterator() {
+		PrimitiveIterator.OfInt ints = intIterator();
+		return new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				return ints.hasNext();
+			}
+
+			@Override
+			public Value next() {
+				return IntValue.of(ints.nextInt());
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Value> iterator(int from, int to) {
+		return new Iterator<>() {
+			private int next = length - 1 - from;
+
+			@Override
+			public boolean hasNext() {
+				return next > length - 1 - to;
+			}
+
+			@Override
+			public Value next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return IntValue.of(elements.ints[next--]);
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = length - 1; i >= 0; i--) {
+			sb.append(elements.ints[i]);
+			if (i > 0)
+				sb.append(", ");
+		}
+		return sb.append(']').toString();
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ListValue))
+			return false;
+		ListValue other = (ListValue) obj;
+		if (length != other.size() || hash != other.hashCode())
+			return false;
+		if (other instanceof IntListValue)
+			return Arrays.equals(elements.ints, 0, length, ((IntListValue) other).elements.ints, 0, length);
+		return sameElements(other);
+	}
+}
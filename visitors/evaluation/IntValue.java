@@ -1,9 +1,24 @@
 package visitors.evaluation;
 
-public class IntValue extends PrimValue<Integer> {
+public class IntValue extends PrimValue {
+	// the canonical values of the small ints, the most used by counters and indexes
+	private static final int MIN_CACHED = -128, MAX_CACHED = 1023;
+	private static final IntValue[] CACHE = new IntValue[MAX_CACHED - MIN_CACHED + 1];
 
-	public IntValue(Integer value) {
-		super(value);
+	static {
+		for (int i = 0; i < CACHE.length; i++)
+			CACHE[i] = new IntValue(i + MIN_CACHED);
+	}
+
+	final int value;
+
+	public IntValue(int value) {
+		this.value = value;
+	}
+
+	/* the value of n, shared if n is small */
+	public static IntValue of(int n) {
+		return n >= MIN_CACHED && n <= MAX_CACHED ? CACHE[n - MIN_CACHED] : new IntValue(n);
 	}
 
 	@Override
@@ -12,12 +27,21 @@ public class IntValue extends PrimValue<Integer> {
 			return true;
 		if (!(obj instanceof IntValue))
 			return false;
-		return value.equals(((IntValue) obj).value);
+		return value == ((IntValue) obj).value;
+	}
+
+	@Override
+	public int hashCode() {
+		return Integer.hashCode(value);
+	}
+
+	@Override
+	public String toString() {
+		return Integer.toString(value);
 	}
 
 	@Override
 	public int asInt() {
 		return value;
 	}
-
 }
@@ -1,36 +1,118 @@
 package visitors.evaluation;
 
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.NoSuchElementException;
 
-import static java.util.Objects.requireNonNull;
+/*
+ * immutable lists of values, represented as cons cells sharing their tails;
+ * prefixing an element is O(1), and each cell caches the length and the
+ * hash code of the list starting from it
+ *
+ * the hash code of x::l is 31 * hash(l) + hash(x), and the one of the empty
+ * list is 1, whatever the representation of the list; see IntListValue
+ */
 
 public class ListValue implements Value, Iterable<Value> {
 
-	private final LinkedList<Value> list = new LinkedList<>();
+	private final Value head; // null for the empty list
+	private final ListValue tail; // null for the empty list
+	private final int size, hash;
+	boolean interned; // set by ValueFactory, equal interned lists are the same object
 
 	public ListValue() {
+		head = null;
+		tail = null;
+		size = 0;
+		hash = 1;
+	}
+
+	/* the list of values, in the order of the collection */
+	public ListValue(Collection<Value> values) {
+		Value[] elements = values.toArray(new Value[0]);
+		if (elements.length == 0) {
+			head = null;
+			tail = null;
+			size = 0;
+			hash = 1;
+			return;
+		}
+		ListValue list = new ListValue();
+		for (int i = elements.length - 1; i > 0; i--)
+			list = new ListValue(elements[i], list);
+		head = requireNonNull(elements[0]);
+		tail = list;
+		size = list.size + 1;
+		hash = 31 * list.hash + head.hashCode();
 	}
 
-	public ListValue(ListValue otherList) {
-		for (Value el : otherList)
-			list.add(el);
+	private ListValue(Value val, ListValue tail) {
+		head = requireNonNull(val);
+		this.tail = requireNonNull(tail);
+		size = tail.size + 1;
+		hash = 31 * tail.hash + head.hashCode();
 	}
 
-	public ListValue(Value val, ListValue tail) {
-		this(tail);
-		list.addFirst(requireNonNull(val));
+	public int size() {
+		return size;
 	}
 
 	@Override
 	public Iterator<Value> iterator() {
-		return list.iterator();
+		return new Iterator<>() {
+			private ListValue next = ListValue.this;
+
+			@Override
+			public boolean hasNext() {
+				return next.size > 0;
+			}
+
+			@Override
+			public Value next() {
+				if (next.size == 0)
+					throw new NoSuchElementException();
+				Value value = next.head;
+				next = next.tail;
+				return value;
+			}
+		};
+	}
+
+	/*
+	 * iterates over the elements from index from, included, to index to,
+	 * excluded; the cells before from are walked through, hence the lists
+	 * stored in arrays override it to start at from at once
+	 */
+	public Iterator<Value> iterator(int from, int to) {
+		ListValue first = this;
+		for (int i = 0; i < from; i++)
+			first = first.tail;
+		ListValue start = first;
+		return new Iterator<>() {
+			private ListValue next = start;
+			private int index = from;
+
+			@Override
+			public boolean hasNext() {
+				return index < to;
+			}
+
+			@Override
+			public Value next() {
+				if (index == to)
+					throw new NoSuchElementException();
+				Value value = next.head;
+				next = next.tail;
+				index++;
+				return value;
+			}
+		};
 	}
 
 	public ListValue prefix(Value el) {
-		ListValue res = new ListValue(this);
-		res.list.addFirst(requireNonNull(el));
-		return res;
+		return new ListValue(el, this);
 	}
 
 	@Override
@@ -40,20 +122,46 @@ public class ListValue implements Value, Iterable<Value> {
 
 	@Override
 	public String toString() {
-		return list.toString();
+		StringBuilder sb = new StringBuilder("[");
+		for (ListValue list = this; list.size > 0; list = list.tail) {
+			sb.append(list.head);
+			if (list.size > 1)
+				sb.append(", ");
+		}
+		return sb.append(']').toString();
 	}
 
 	@Override
 	public int hashCode() {
-		return list.hashCode();
+		return hash;
 	}
 
+	/* compares the elements of two lists of the same length, whatever their representation */
+	boolean sameElements(ListValue other) {
+		Iterator<Value> it = other.iterator();
+		for (Value value : this)
+			if (!value.equals(it.next()))
+				return false;
+		return true;
+	}
+
+	/* lists are compared iteratively, and cells shared by both lists are not compared again */
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
 			return true;
 		if (!(obj instanceof ListValue))
 			return false;
-		return list.equals(((ListValue) obj).list);
+		ListValue list = this, other = (ListValue) obj;
+		if (interned && other.interned)
+			return false;
+		if (list.size() != other.size() || list.hashCode() != other.hashCode())
+			return false;
+		if (other.getClass() != ListValue.class) // another representation
+			return sameElements(other);
+		for (; list.size > 0 && list != other; list = list.tail, other = other.tail)
+			if (!list.head.equals(other.head))
+				return false;
+		return true;
 	}
 }
@@ -0,0 +1,83 @@
+package visitors.evaluation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * the off-heap memory of the lists of a run, which is freed all at once when
+ * the arena is closed at the end of the run; the memory is made of direct
+ * buffers, freed by their cleaner, or by the garbage collector if the cleaner
+ * is not accessible
+ *
+ * the arena refers to its buffers weakly, hence the buffers no longer used
+ * by any list, such as the copies made when two lists are prefixed to the
+ * same list, are freed by the garbage collector during the run, as any
+ * other direct buffer
+ */
+
+public class OffHeapArena implements AutoCloseable {
+
+	private static final MethodHandle FREE = cleaner();
+
+	private final Set<Reference<ByteBuffer>> buffers = new HashSet<>(); // compared by identity
+	private final ReferenceQueue<ByteBuffer> collected = new ReferenceQueue<>();
+	private boolean closed;
+
+	/* sun.misc.Unsafe.invokeCleaner, bound to the Unsafe instance, or null */
+	private static MethodHandle cleaner() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			return MethodHandles.lookup()
+					.findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+					.bindTo(field.get(null));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/* a zeroed buffer of bytes bytes, in the native byte order */
+	synchronized ByteBuffer allocate(int bytes) {
+		checkOpen();
+		Reference<? extends ByteBuffer> ref;
+		while ((ref = collected.poll()) != null)
+			buffers.remove(ref);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		buffers.add(new WeakReference<>(buffer, collected));
+		return buffer;
+	}
+
+	/* the lists of a run must not be used after the end of the run */
+	synchronized void checkOpen() {
+		if (closed)
+			throw new IllegalStateException("Off-heap list used after the end of its run");
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		if (FREE != null)
+			for (Reference<ByteBuffer> ref : buffers) {
+				ByteBuffer buffer = ref.get();
+				if (buffer != null)
+					try {
+						FREE.invokeExact(buffer);
+					} catch (Throwable e) {
+						break; // the remaining buffers are left to the garbage collector
+					}
+			}
+		buffers.clear();
+	}
+}
@@ -0,0 +1,175 @@
+package visitors.evaluation;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * immutable lists of ints or bools stored off the heap, in the memory of an
+ * arena, so that very long lists are not made of objects traced by the
+ * garbage collector; as in IntListValue the elements are stored from the last
+ * to the first and shared with the longer lists built by prefixing, ints in
+ * 4 bytes and bools in 1
+ */
+
+public class OffHeapListValue extends ListValue {
+
+	private static final int MIN_CAPACITY = 1024;
+	private static final int MAX_INTS = Integer.MAX_VALUE / 4; // the size of a buffer in bytes is an int
+
+	/* the memory of the elements, and the number of its cells claimed by some list */
+	private static final class Elements {
+		final ByteBuffer buffer;
+		final int capacity;
+		final AtomicInteger used;
+
+		Elements(ByteBuffer buffer, int capacity, int used) {
+			this.buffer = buffer;
+			this.capacity = capacity;
+			this.used = new AtomicInteger(used);
+		}
+	}
+
+	private final OffHeapArena arena;
+	private final boolean ints; // the elements are ints, otherwise bools
+	private final Elements elements;
+	private final int length, hash;
+
+	private OffHeapListValue(OffHeapArena arena, boolean ints, Elements elements, int length, int hash) {
+		this.arena = arena;
+		this.ints = ints;
+		this.elements = elements;
+		this.length = length;
+		this.hash = hash;
+	}
+
+	/* a copy of a list of ints, or of bools, in the memory of arena */
+	public static OffHeapListValue copyOf(ListValue list, boolean ints, OffHeapArena arena) {
+		int length = list.size();
+		Elements elements = allocate(arena, ints, capacity(ints, length), length);
+		int index = length;
+		for (Value value : list)
+			put(elements, ints, --index, ints ? value.asInt() : value.asBool() ? 1 : 0);
+		return new OffHeapListValue(arena, ints, elements, length, list.hashCode());
+	}
+
+	/* the capacity of a new buffer holding length elements, with room for as many more if possible */
+	private static int capacity(boolean ints, long length) {
+		int max = ints ? MAX_INTS : Integer.MAX_VALUE;
+		if (length > max)
+			throw new EvaluatorException("List of " + length + " elements too long to be stored off the heap");
+		return (int) Math.min(Math.max(MIN_CAPACITY, 2 * length), max);
+	}
+
+	private static Elements allocate(OffHeapArena arena, boolean ints, int capacity, int used) {
+		return new Elements(arena.allocate(ints ? 4 * capacity : capacity), capacity, used);
+	}
+
+	private static void put(Elements elements, boolean ints, int index, int bits) {
+		if (ints)
+			elements.buffer.putInt(4 * index, bits);
+		else
+			elements.buffer.put(index, (byte) bits);
+	}
+
+	/* the element at index, from the first one, as an int or as 0 and 1 for bools */
+	private int bits(int index) {
+		int cell = length - 1 - index;
+		return ints ? elements.buffer.getInt(4 * cell) : elements.buffer.get(cell);
+	}
+
+	private Value value(int bits) {
+		return ints ? IntValue.of(bits) : BoolValue.of(bits != 0);
+	}
+
+	private OffHeapListValue prefixBits(int bits) {
+		int newHash = 31 * hash + (ints ? Integer.hashCode(bits) : Boolean.hashCode(bits != 0));
+		if (length < elements.capacity && elements.used.compareAndSet(length, length + 1)) {
+			put(elements, ints, length, bits);
+			return new OffHeapListValue(arena, ints, elements, length + 1, newHash);
+		}
+		Elements copy = allocate(arena, ints, capacity(ints, length + 1L), length + 1);
+		ByteBuffer used = elements.buffer.duplicate().limit(ints ? 4 * length : length).position(0);
+		copy.buffer.duplicate().put(used);
+		put(copy, ints, length, bits);
+		return new OffHeapListValue(arena, ints, copy, length + 1, newHash);
+	}
+
+	public OffHeapListValue prefix(int el) {
+		return prefixBits(el);
+	}
+
+	public OffHeapListValue prefix(boolean el) {
+		return prefixBits(el ? 1 : 0);
+	}
+
+	@Override
+	public ListValue prefix(Value el) {
+		return prefixBits(ints ? el.asInt() : el.asBool() ? 1 : 0);
+	}
+
+	@Override
+	public int size() {
+		return length;
+	}
+
+	@Override
+	public Iterator<Value> iterator() {
+		return iterator(0, length);
+	}
+
+	@Override
+	public Iterator<Value> iterator(int from, int to) {
+		arena.checkOpen();
+		return new Iterator<>() {
+			private int next = from;
+
+			@Override
+			public boolean hasNext() {
+				return next < to;
+			}
+
+			@Override
+			public Value next() {
+				if (next == to)
+					throw new NoSuchElementException();
+				return value(bits(next++));
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		arena.checkOpen();
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < length; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(ints ? Integer.toString(bits(i)) : Boolean.toString(bits(i) != 0));
+		}
+		return sb.append(']').toString();
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ListValue))
+			return false;
+		ListValue other = (ListValue) obj;
+		if (length != other.size() || hash != other.hashCode())
+			return false;
+		arena.checkOpen();
+		if (other instanceof OffHeapListValue && ((OffHeapListValue) other).ints == ints) {
+			int bytes = ints ? 4 * length : length;
+			return elements.buffer.slice(0, bytes).equals(((OffHeapListValue) other).elements.buffer.slice(0, bytes));
+		}
+		return sameElements(other);
+	}
+}
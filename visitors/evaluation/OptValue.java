@@ -1,8 +1,11 @@
 package visitors.evaluation;
 
+import java.util.Objects;
+
 public class OptValue implements Value {
 	protected final Value value;
 	private boolean Empty=false;
+	boolean interned; // set by ValueFactory, equal interned values are the same object
 	public OptValue(Value value) {
         this.value = value;
         
@@ -20,12 +23,15 @@ public class OptValue implements Value {
 			return true;
 		if (!(obj instanceof OptValue))
 			return false;
+		if (interned && ((OptValue) obj).interned)
+			return false;
 		return (this.Empty==true && ((OptValue)obj).Empty==true)||(value.equals(((OptValue) obj).value) &&(this.Empty==false && ((OptValue)obj).Empty==false) );
 	}
 
+    /* all empty opts are equal, whatever their value, which may be null */
     @Override
     public int hashCode() {
-        return 31* value.hashCode();
+        return Empty ? 1 : 31 * Objects.hashCode(value);
     }
 
     @Override
@@ -1,21 +1,5 @@
 package visitors.evaluation;
 
-import static java.util.Objects.requireNonNull;
-
-public abstract class PrimValue<T> implements Value {
-	protected T value;
-
-	protected PrimValue(T value) {
-		this.value = requireNonNull(value);
-	}
-
-	@Override
-	public int hashCode() {
-		return value.hashCode();
-	}
-
-	@Override
-	public String toString() {
-		return value.toString();
-	}
-}
\ No newline at end of file
+/* the values of the primitive types, which the subclasses store unboxed */
+public abstract class PrimValue implements Value {
+}
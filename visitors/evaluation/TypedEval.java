@@ -0,0 +1,83 @@
+package visitors.evaluation;
+
+import java.io.PrintWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import parser.ast.Exp;
+
+/*
+ * evaluates a program whose expression nodes are annotated with the types
+ * recorded by the type checker; the operands proven to be ints, bools, lists
+ * and opts are cast to their value class instead of being checked through
+ * the conversion methods of Value, and the opts are not tested as Eval does
+ */
+
+public class TypedEval extends Eval {
+
+	public TypedEval(PrintWriter p) {
+		super(p);
+	}
+
+	public TypedEval(PrintWriter p, int offHeapThreshold) {
+		super(p, offHeapThreshold);
+	}
+
+	public TypedEval(PrintWriter p, int offHeapThreshold, ValueFactory values) {
+		super(p, offHeapThreshold, values);
+	}
+
+	public TypedEval(PrintWriter p, int offHeapThreshold, ValueFactory values, ForkJoinPool pool) {
+		super(p, offHeapThreshold, values, pool);
+	}
+
+	private TypedEval(TypedEval parent, PrintWriter p, AtomicBoolean cancelled) {
+		super(parent, p, cancelled);
+	}
+
+	@Override
+	protected Eval fork(PrintWriter p, AtomicBoolean cancelled) {
+		return new TypedEval(this, p, cancelled);
+	}
+
+	// auxiliary methods, for operands proven to have the type of the value class
+
+	@Override
+	protected int intOf(Value value) {
+		return ((IntValue) value).value;
+	}
+
+	@Override
+	protected boolean boolOf(Value value) {
+		return ((BoolValue) value).value;
+	}
+
+	@Override
+	protected ListValue listOf(Exp exp) {
+		return (ListValue) exp.accept(this);
+	}
+
+	private OptValue optOf(Exp exp) {
+		return (OptValue) exp.accept(this);
+	}
+
+	// dynamic semantics of expressions, with no dynamic type check
+
+	@Override
+	public Value visitEmpty(Exp exp) {
+		return emptyOpt(optOf(exp));
+	}
+
+	@Override
+	public Value visitGet(Exp exp) {
+		OptValue opt = optOf(exp);
+		if (opt.isEmpty())
+			throw new EvaluatorException("Expecting a opt value not a empty opt");
+		return opt.getValue();
+	}
+
+	@Override
+	public Value visitDef(Exp exp) {
+		return BoolValue.of(!optOf(exp).isEmpty());
+	}
+}
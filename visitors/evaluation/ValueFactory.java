@@ -0,0 +1,95 @@
+package visitors.evaluation;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/*
+ * hash-consing of lists and opts: the factory returns the same object for
+ * equal lists, and for equal opts, hence equal interned values are compared
+ * by reference; a value is interned only if its components are, so interning
+ * a new cons cell compares its head and finds its tail by reference, in O(1)
+ *
+ * the table holds its values weakly, and is bounded: when it is full new
+ * values are not interned, and are compared structurally as usual
+ */
+
+public class ValueFactory {
+
+	public static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+	private final Map<Value, WeakReference<Value>> table = new WeakHashMap<>();
+	private final int maxSize;
+	private final ListValue empty;
+
+	public ValueFactory() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public ValueFactory(int maxSize) {
+		this.maxSize = maxSize;
+		empty = intern(new ListValue());
+	}
+
+	/* ints and bools need no interning, since they are compared in O(1) */
+	private static boolean isInterned(Value value) {
+		if (value instanceof ListValue)
+			return ((ListValue) value).interned;
+		if (value instanceof OptValue)
+			return ((OptValue) value).interned;
+		return true;
+	}
+
+	private synchronized <T extends Value> T intern(T value) {
+		WeakReference<Value> ref = table.get(value);
+		Value found = ref == null ? null : ref.get();
+		if (found != null) {
+			@SuppressWarnings("unchecked")
+			T canonical = (T) found;
+			return canonical;
+		}
+		if (table.size() >= maxSize)
+			return value;
+		if (value instanceof ListValue)
+			((ListValue) value).interned = true;
+		else
+			((OptValue) value).interned = true;
+		table.put(value, new WeakReference<>(value));
+		return value;
+	}
+
+	public ListValue empty() {
+		return empty;
+	}
+
+	public ListValue prefix(Value el, ListValue tail) {
+		ListValue list = tail.prefix(el);
+		return isInterned(el) && tail.interned ? intern(list) : list;
+	}
+
+	/* the list of the values, in the same order */
+	public ListValue list(List<Value> values) {
+		ListValue list = empty;
+		for (int i = values.size() - 1; i >= 0; i--)
+			list = prefix(values.get(i), list);
+		return list;
+	}
+
+	public OptValue opt(Value value) {
+		OptValue opt = new OptValue(value);
+		return isInterned(value) ? intern(opt) : opt;
+	}
+
+	/* the empty opt of the same type as opt */
+	public OptValue empty(OptValue opt) {
+		OptValue empty = new OptValue(opt);
+		empty.modifyEmpty();
+		return isInterned(empty.getValue()) ? intern(empty) : empty;
+	}
+
+	/* the number of values in the table, for statistics */
+	public synchronized int size() {
+		return table.size();
+	}
+}
@@ -0,0 +1,186 @@
+package visitors.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * minimal writer of class files with static fields and methods only; the
+ * version is 49, whose classes are verified by type inference, hence no
+ * StackMapTable is needed
+ */
+
+final class ClassWriter {
+	static final int ACC_PUBLIC = 0x0001, ACC_PRIVATE = 0x0002, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010,
+			ACC_SUPER = 0x0020;
+
+	private static final int MAGIC = 0xCAFEBABE, VERSION = 49, MAX_ENTRIES = 0xFFFF;
+	private static final int UTF8 = 1, INTEGER = 3, CLASS = 7, FIELD = 9, METHOD = 10, INTERFACE_METHOD = 11,
+			NAME_AND_TYPE = 12;
+
+	private final String name;
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+	private final DataOutputStream entries = new DataOutputStream(pool);
+	private final Map<String, Integer> indexes = new HashMap<>(); // entries are shared
+	private int count = 1;
+
+	private static class Field {
+		final int access;
+		final String name, descriptor;
+
+		Field(int access, String name, String descriptor) {
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+	}
+
+	private final List<Field> fields = new ArrayList<>();
+	private final List<MethodWriter> methods = new ArrayList<>();
+
+	/* name is the internal name of the class, with slashes */
+	ClassWriter(String name) {
+		this.name = name;
+	}
+
+	String name() {
+		return name;
+	}
+
+	// constant pool
+
+	private interface Entry {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private int entry(String key, Entry entry) {
+		Integer index = indexes.get(key);
+		if (index != null)
+			return index;
+		if (count == MAX_ENTRIES)
+			throw new JitException("Too many constants in class " + name);
+		try {
+			entry.write(entries);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		indexes.put(key, count);
+		return count++;
+	}
+
+	int utf8(String value) {
+		return entry("U" + value, out -> {
+			out.writeByte(UTF8);
+			out.writeUTF(value);
+		});
+	}
+
+	int integer(int value) {
+		return entry("I" + value, out -> {
+			out.writeByte(INTEGER);
+			out.writeInt(value);
+		});
+	}
+
+	int classRef(String internalName) {
+		int nameIndex = utf8(internalName);
+		return entry("C" + internalName, out -> {
+			out.writeByte(CLASS);
+			out.writeShort(nameIndex);
+		});
+	}
+
+	private int member(int tag, String owner, String name, String descriptor) {
+		int classIndex = classRef(owner);
+		int nameIndex = utf8(name), descriptorIndex = utf8(descriptor);
+		int nameAndType = entry("N" + name + " " + descriptor, out -> {
+			out.writeByte(NAME_AND_TYPE);
+			out.writeShort(nameIndex);
+			out.writeShort(descriptorIndex);
+		});
+		return entry(tag + owner + "." + name + descriptor, out -> {
+			out.writeByte(tag);
+			out.writeShort(classIndex);
+			out.writeShort(nameAndType);
+		});
+	}
+
+	int fieldRef(String owner, String name, String descriptor) {
+		return member(FIELD, owner, name, descriptor);
+	}
+
+	int methodRef(String owner, String name, String descriptor) {
+		return member(METHOD, owner, name, descriptor);
+	}
+
+	int interfaceMethodRef(String owner, String name, String descriptor) {
+		return member(INTERFACE_METHOD, owner, name, descriptor);
+	}
+
+	// members
+
+	void field(int access, String name, String descriptor) {
+		fields.add(new Field(access, name, descriptor));
+	}
+
+	MethodWriter method(int access, String name, String descriptor, int parameterSlots) {
+		MethodWriter method = new MethodWriter(this, access, name, descriptor, parameterSlots);
+		methods.add(method);
+		return method;
+	}
+
+	byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			int thisIndex = classRef(name), superIndex = classRef("java/lang/Object");
+			int codeIndex = utf8("Code");
+			int[][] fieldIndexes = new int[fields.size()][];
+			for (int i = 0; i < fieldIndexes.length; i++)
+				fieldIndexes[i] = new int[] { utf8(fields.get(i).name), utf8(fields.get(i).descriptor) };
+			int[][] methodIndexes = new int[methods.size()][];
+			for (int i = 0; i < methodIndexes.length; i++)
+				methodIndexes[i] = new int[] { utf8(methods.get(i).name), utf8(methods.get(i).descriptor) };
+			out.writeInt(MAGIC);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(count);
+			pool.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisIndex);
+			out.writeShort(superIndex);
+			out.writeShort(0); // no interfaces
+			out.writeShort(fields.size());
+			for (int i = 0; i < fieldIndexes.length; i++) {
+				out.writeShort(fields.get(i).access);
+				out.writeShort(fieldIndexes[i][0]);
+				out.writeShort(fieldIndexes[i][1]);
+				out.writeShort(0); // no attributes
+			}
+			out.writeShort(methods.size());
+			for (int i = 0; i < methodIndexes.length; i++) {
+				MethodWriter method = methods.get(i);
+				out.writeShort(method.access);
+				out.writeShort(methodIndexes[i][0]);
+				out.writeShort(methodIndexes[i][1]);
+				out.writeShort(1); // the Code attribute
+				out.writeShort(codeIndex);
+				out.writeInt(12 + method.size());
+				out.writeShort(method.maxStack());
+				out.writeShort(method.maxLocals());
+				out.writeInt(method.size());
+				method.writeCode(out);
+				out.writeShort(0); // no exception handlers
+				out.writeShort(0); // no attributes
+			}
+			out.writeShort(0); // no class attributes
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,460 @@
+package visitors.jit;
+
+import static visitors.jit.ClassWriter.ACC_PRIVATE;
+import static visitors.jit.ClassWriter.ACC_PUBLIC;
+import static visitors.jit.ClassWriter.ACC_STATIC;
+import static visitors.jit.MethodWriter.*;
+import static visitors.typechecking.PrimtType.BOOL;
+import static visitors.typechecking.PrimtType.INT;
+
+import java.io.PrintWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import parser.ast.Exp;
+import parser.ast.ExpSeq;
+import parser.ast.Ident;
+import parser.ast.Prog;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+import visitors.Visitor;
+import visitors.resolution.Resolver;
+import visitors.typechecking.ListType;
+import visitors.typechecking.OptType;
+import visitors.typechecking.Type;
+
+/*
+ * compiles a type checked program into a JVM class, loaded as a hidden class
+ * and run by the HotSpot JIT like any other code; the visitor returns the
+ * type of the compiled expression, and null for statements
+ *
+ * expressions of type INT and BOOL are compiled to JVM ints, all the others
+ * to Value references; each top-level statement is compiled into its own
+ * static method, called in order by run(PrintWriter), so that the size of
+ * the methods does not grow with the length of the program and each one
+ * stays below the limit of HotSpot for methods it compiles (8000 bytes of
+ * bytecode); top-level variables are static fields, the other ones are
+ * locals, allocated as a stack following the scope levels
+ *
+ * as in the bytecode compiler, the type of a variable is the one of its most
+ * recently compiled declaration; throws JitException if a class file limit is
+ * exceeded
+ */
+
+public class JitCompiler implements Visitor<Type> {
+	private static final String NAME = "visitors/jit/CompiledScript";
+	private static final String VALUE = "visitors/evaluation/Value", VALUE_DESC = "L" + VALUE + ";";
+	private static final String ITERATOR_DESC = "Ljava/util/Iterator;";
+	private static final String PRINT_WRITER = "java/io/PrintWriter", STMT_DESC = "(L" + PRINT_WRITER + ";)V";
+
+	private final ClassWriter writer = new ClassWriter(NAME);
+	private final MethodWriter run = writer.method(ACC_PUBLIC | ACC_STATIC, "run", STMT_DESC, 1);
+	private MethodWriter method; // the method of the current top-level statement
+	private int statements;
+
+	private Type[][] slotTypes = new Type[1][];
+	private int[][] slotLocals = new int[1][];
+
+	private List<Exp> elements; // the elements of the list literal being compiled
+
+	public static Script compile(Prog prog) {
+		prog.accept(new Resolver());
+		JitCompiler compiler = new JitCompiler();
+		prog.accept(compiler);
+		compiler.run.op(RETURN, 0);
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(compiler.writer.toByteArray(),
+					true);
+			return new Script(lookup.findStatic(lookup.lookupClass(), "run",
+					MethodType.methodType(void.class, PrintWriter.class)));
+		} catch (ReflectiveOperationException e) {
+			throw new JitException(e.getMessage());
+		}
+	}
+
+	/* a compiled program */
+	public static final class Script {
+		private final MethodHandle run;
+
+		private Script(MethodHandle run) {
+			this.run = run;
+		}
+
+		public void run(PrintWriter p) {
+			try {
+				run.invokeExact(p);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) { // compiled scripts throw no checked exception
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	// auxiliary methods
+
+	private static boolean isPrim(Type type) {
+		return type == INT || type == BOOL;
+	}
+
+	private static String descriptor(Type type) {
+		return isPrim(type) ? "I" : VALUE_DESC;
+	}
+
+	private static String field(int slot) {
+		return "v" + slot;
+	}
+
+	private void declare(Ident ident, Type type) {
+		int depth = ident.getDepth(), slot = ident.getSlot();
+		if (depth >= slotTypes.length) {
+			slotTypes = Arrays.copyOf(slotTypes, depth + 1);
+			slotLocals = Arrays.copyOf(slotLocals, depth + 1);
+		}
+		if (slotTypes[depth] == null || slot >= slotTypes[depth].length) {
+			int length = Math.max(8, slot + 1);
+			slotTypes[depth] = Arrays.copyOf(slotTypes[depth] == null ? new Type[0] : slotTypes[depth], length);
+			slotLocals[depth] = Arrays.copyOf(slotLocals[depth] == null ? new int[0] : slotLocals[depth], length);
+		}
+		slotTypes[depth][slot] = type;
+		if (depth == 0)
+			writer.field(ACC_PRIVATE | ACC_STATIC, field(slot), descriptor(type));
+		else
+			slotLocals[depth][slot] = method.newLocal();
+	}
+
+	private Type slotType(Ident ident) {
+		return slotTypes[ident.getDepth()][ident.getSlot()];
+	}
+
+	private Type load(Ident ident) {
+		Type type = slotType(ident);
+		if (ident.getDepth() == 0)
+			method.field(GETSTATIC, field(ident.getSlot()), descriptor(type));
+		else
+			method.local(isPrim(type) ? ILOAD : ALOAD, slotLocals[ident.getDepth()][ident.getSlot()]);
+		return type;
+	}
+
+	private void store(Ident ident) {
+		Type type = slotType(ident);
+		if (ident.getDepth() == 0)
+			method.field(PUTSTATIC, field(ident.getSlot()), descriptor(type));
+		else
+			method.local(isPrim(type) ? ISTORE : ASTORE, slotLocals[ident.getDepth()][ident.getSlot()]);
+	}
+
+	/* compiles an expression whose value must be a Value reference */
+	private Type boxed(Exp exp) {
+		Type type = exp.accept(this);
+		if (isPrim(type))
+			method.invoke(INVOKESTATIC, ScriptSupport.NAME, "box", (type == INT ? "(I)" : "(Z)") + VALUE_DESC);
+		return type;
+	}
+
+	private void unbox(Type type) {
+		if (type == INT)
+			method.invoke(INVOKEINTERFACE, VALUE, "asInt", "()I");
+		else if (type == BOOL)
+			method.invoke(INVOKEINTERFACE, VALUE, "asBool", "()Z");
+	}
+
+	private void support(String name, String descriptor) {
+		method.invoke(INVOKESTATIC, ScriptSupport.NAME, name, descriptor);
+	}
+
+	/* compiles a block in its own scope level, whose locals are freed on exit */
+	private void block(StmtSeq block) {
+		int locals = method.locals();
+		block.accept(this);
+		method.freeLocals(locals);
+	}
+
+	/* compiles a top-level statement into a new method, and any other statement into the current one */
+	private void statement(Stmt stmt) {
+		if (method != null) {
+			stmt.accept(this);
+			return;
+		}
+		String name = "s" + statements++;
+		method = writer.method(ACC_PRIVATE | ACC_STATIC, name, STMT_DESC, 1);
+		stmt.accept(this);
+		method.op(RETURN, 0);
+		method = null;
+		run.local(ALOAD, 0);
+		run.invoke(INVOKESTATIC, NAME, name, STMT_DESC);
+	}
+
+	@Override
+	public Type visitProg(StmtSeq stmtSeq) {
+		stmtSeq.accept(this);
+		return null;
+	}
+
+	// statements
+
+	@Override
+	public Type visitAssignStmt(Ident ident, Exp exp) {
+		exp.accept(this);
+		store(ident);
+		return null;
+	}
+
+	@Override
+	public Type visitVarStmt(Ident ident, Exp exp) {
+		Type type = exp.accept(this);
+		declare(ident, type);
+		store(ident);
+		return null;
+	}
+
+	@Override
+	public Type visitPrintStmt(Exp exp) {
+		method.local(ALOAD, 0);
+		Type type = exp.accept(this);
+		method.invoke(INVOKEVIRTUAL, PRINT_WRITER, "println",
+				type == INT ? "(I)V" : type == BOOL ? "(Z)V" : "(Ljava/lang/Object;)V");
+		return null;
+	}
+
+	/* it = iterator(exp); loop: if (!it.hasNext()) goto exit; ident = next(it); block; goto loop; exit: */
+	@Override
+	public Type visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
+		Type elemType = exp.accept(this).getListElemType();
+		int locals = method.locals();
+		int iterator = method.newLocal();
+		support("iterator", "(" + VALUE_DESC + ")" + ITERATOR_DESC);
+		method.local(ASTORE, iterator);
+		int loop = method.label();
+		method.local(ALOAD, iterator);
+		method.invoke(INVOKEINTERFACE, "java/util/Iterator", "hasNext", "()Z");
+		int exit = method.jump(IFEQ, -1);
+		declare(ident, elemType);
+		method.local(ALOAD, iterator);
+		support("next", "(" + ITERATOR_DESC + ")" + VALUE_DESC);
+		unbox(elemType);
+		store(ident);
+		block.accept(this);
+		method.jump(GOTO, loop, 0);
+		method.patch(exit);
+		method.freeLocals(locals);
+		return null;
+	}
+
+	@Override
+	public Type visitIfStmt(Exp exp, StmtSeq block) {
+		exp.accept(this);
+		int end = method.jump(IFEQ, -1);
+		block(block);
+		method.patch(end);
+		return null;
+	}
+
+	@Override
+	public Type visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		exp.accept(this);
+		int other = method.jump(IFEQ, -1);
+		block(block);
+		int end = method.jump(GOTO, 0);
+		method.patch(other);
+		block(option);
+		method.patch(end);
+		return null;
+	}
+
+	@Override
+	public Type visitDoStmt(StmtSeq stmt, Exp exp) {
+		int loop = method.label();
+		block(stmt);
+		exp.accept(this);
+		method.jump(IFNE, loop, -1);
+		return null;
+	}
+
+	// sequences
+
+	@Override
+	public Type visitSingleStmt(Stmt stmt) {
+		statement(stmt);
+		return null;
+	}
+
+	@Override
+	public Type visitMoreStmt(Stmt first, StmtSeq rest) {
+		statement(first);
+		rest.accept(this);
+		return null;
+	}
+
+	@Override
+	public Type visitManyStmt(List<Stmt> stmts) {
+		for (Stmt stmt : stmts)
+			statement(stmt);
+		return null;
+	}
+
+	// the elements of list literals are collected, and compiled by visitListLiteral
+
+	@Override
+	public Type visitSingleExp(Exp exp) {
+		elements.add(exp);
+		return null;
+	}
+
+	@Override
+	public Type visitMoreExp(Exp first, ExpSeq rest) {
+		elements.add(first);
+		rest.accept(this);
+		return null;
+	}
+
+	@Override
+	public Type visitManyExp(List<Exp> exps) {
+		elements.addAll(exps);
+		return null;
+	}
+
+	// expressions
+
+	@Override
+	public Type visitAdd(Exp left, Exp right) {
+		left.accept(this);
+		right.accept(this);
+		method.op(IADD, -1);
+		return INT;
+	}
+
+	@Override
+	public Type visitMul(Exp left, Exp right) {
+		left.accept(this);
+		right.accept(this);
+		method.op(IMUL, -1);
+		return INT;
+	}
+
+	@Override
+	public Type visitPrefix(Exp left, Exp right) {
+		boxed(left);
+		Type type = right.accept(this);
+		support("prefix", "(" + VALUE_DESC + VALUE_DESC + ")" + VALUE_DESC);
+		return type;
+	}
+
+	/* left ? right : false */
+	@Override
+	public Type visitAnd(Exp left, Exp right) {
+		left.accept(this);
+		int other = method.jump(IFEQ, -1);
+		right.accept(this);
+		int end = method.jump(GOTO, 0);
+		method.adjust(-1); // only one of the two branches pushes its result
+		method.patch(other);
+		method.pushInt(0);
+		method.patch(end);
+		return BOOL;
+	}
+
+	@Override
+	public Type visitEqual(Exp left, Exp right) {
+		Type type = left.accept(this);
+		right.accept(this);
+		if (!isPrim(type)) {
+			method.invoke(INVOKEVIRTUAL, "java/lang/Object", "equals", "(Ljava/lang/Object;)Z");
+			return BOOL;
+		}
+		int other = method.jump(IF_ICMPNE, -2);
+		method.pushInt(1);
+		int end = method.jump(GOTO, 0);
+		method.adjust(-1);
+		method.patch(other);
+		method.pushInt(0);
+		method.patch(end);
+		return BOOL;
+	}
+
+	@Override
+	public Type visitSign(Exp exp) {
+		exp.accept(this);
+		method.op(INEG, 0);
+		return INT;
+	}
+
+	@Override
+	public Type visitNot(Exp exp) {
+		exp.accept(this);
+		method.pushInt(1);
+		method.op(IXOR, -1);
+		return BOOL;
+	}
+
+	@Override
+	public Type visitOptLiteral(Exp exp) {
+		Type type = boxed(exp);
+		support("opt", "(" + VALUE_DESC + ")" + VALUE_DESC);
+		return new OptType(type);
+	}
+
+	@Override
+	public Type visitEmpty(Exp exp) {
+		Type type = exp.accept(this);
+		support("empty", "(" + VALUE_DESC + ")" + VALUE_DESC);
+		return type;
+	}
+
+	@Override
+	public Type visitGet(Exp exp) {
+		Type type = exp.accept(this).getOptElemType();
+		support("get", "(" + VALUE_DESC + ")" + VALUE_DESC);
+		unbox(type);
+		return type;
+	}
+
+	@Override
+	public Type visitDef(Exp exp) {
+		exp.accept(this);
+		support("def", "(" + VALUE_DESC + ")Z");
+		return BOOL;
+	}
+
+	/* list(new Value[] { e1, ..., en }) */
+	@Override
+	public Type visitListLiteral(ExpSeq exps) {
+		List<Exp> outer = elements;
+		elements = new ArrayList<>();
+		exps.accept(this);
+		List<Exp> inner = elements;
+		elements = outer;
+		method.pushInt(inner.size());
+		method.op(ANEWARRAY, writer.classRef(VALUE), 0);
+		Type type = null;
+		for (int i = 0; i < inner.size(); i++) {
+			method.op(DUP, 1);
+			method.pushInt(i);
+			type = boxed(inner.get(i));
+			method.op(AASTORE, -3);
+		}
+		support("list", "([" + VALUE_DESC + ")" + VALUE_DESC);
+		return new ListType(type);
+	}
+
+	@Override
+	public Type visitIntLiteral(int value) {
+		method.pushInt(value);
+		return INT;
+	}
+
+	@Override
+	public Type visitBoolLiteral(Boolean value) {
+		method.pushInt(value ? 1 : 0);
+		return BOOL;
+	}
+
+	@Override
+	public Type visitIdent(Ident ident) {
+		return load(ident);
+	}
+}
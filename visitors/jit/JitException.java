@@ -0,0 +1,11 @@
+package visitors.jit;
+
+/* thrown when a program cannot be compiled into a JVM class, for instance because of the size limits of class files */
+
+public class JitException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public JitException(String message) {
+		super(message);
+	}
+}
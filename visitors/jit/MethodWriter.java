@@ -0,0 +1,201 @@
+package visitors.jit;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * writer of the code of a method; the maximum height of the operand stack is
+ * computed from the stack effect of each instruction, given by the caller,
+ * and jumps are written with 16 bit offsets, hence the code of a method is
+ * limited to 32KB
+ */
+
+final class MethodWriter {
+	// the opcodes used by the compiler
+	static final int ICONST_0 = 3, BIPUSH = 16, SIPUSH = 17, LDC_W = 19, ILOAD = 21, ALOAD = 25, AASTORE = 83,
+			ISTORE = 54, ASTORE = 58, POP = 87, DUP = 89, IADD = 96, IMUL = 104, INEG = 116, IXOR = 130, IFEQ = 153,
+			IFNE = 154, IF_ICMPNE = 160, GOTO = 167, RETURN = 177, GETSTATIC = 178, PUTSTATIC = 179,
+			INVOKEVIRTUAL = 182, INVOKESTATIC = 184, INVOKEINTERFACE = 185, ANEWARRAY = 189, CHECKCAST = 192,
+			WIDE = 196;
+
+	private static final int MAX_CODE = Short.MAX_VALUE;
+
+	private final ClassWriter owner;
+	final int access;
+	final String name, descriptor;
+
+	private byte[] code = new byte[256];
+	private int size;
+	private int stack, maxStack, locals, maxLocals;
+
+	MethodWriter(ClassWriter owner, int access, String name, String descriptor, int parameterSlots) {
+		this.owner = owner;
+		this.access = access;
+		this.name = name;
+		this.descriptor = descriptor;
+		locals = maxLocals = parameterSlots;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int maxStack() {
+		return maxStack;
+	}
+
+	int maxLocals() {
+		return maxLocals;
+	}
+
+	void writeCode(DataOutputStream out) throws IOException {
+		out.write(code, 0, size);
+	}
+
+	// raw output
+
+	private void u1(int value) {
+		if (size == code.length) {
+			if (size == MAX_CODE)
+				throw new JitException("Method " + name + " too large");
+			code = Arrays.copyOf(code, Math.min(2 * size, MAX_CODE));
+		}
+		code[size++] = (byte) value;
+	}
+
+	private void u2(int value) {
+		u1(value >> 8);
+		u1(value);
+	}
+
+	/* updates the height of the operand stack by delta */
+	void adjust(int delta) {
+		stack += delta;
+		maxStack = Math.max(maxStack, stack);
+	}
+
+	// instructions
+
+	void op(int opcode, int delta) {
+		u1(opcode);
+		adjust(delta);
+	}
+
+	/* an instruction whose operand is the index of a constant */
+	void op(int opcode, int index, int delta) {
+		u1(opcode);
+		u2(index);
+		adjust(delta);
+	}
+
+	void pushInt(int value) {
+		if (value >= -1 && value <= 5)
+			u1(ICONST_0 + value);
+		else if (value == (byte) value) {
+			u1(BIPUSH);
+			u1(value);
+		} else if (value == (short) value) {
+			u1(SIPUSH);
+			u2(value);
+		} else {
+			u1(LDC_W);
+			u2(owner.integer(value));
+		}
+		adjust(1);
+	}
+
+	/* loads or stores a local variable, opcode is one of ILOAD, ALOAD, ISTORE and ASTORE */
+	void local(int opcode, int index) {
+		if (index > 0xFF) {
+			u1(WIDE);
+			u1(opcode);
+			u2(index);
+		} else {
+			u1(opcode);
+			u1(index);
+		}
+		adjust(opcode == ILOAD || opcode == ALOAD ? 1 : -1);
+	}
+
+	/* the number of slots of the arguments, or of the result, in a method descriptor */
+	private static int slots(String descriptor, boolean result) {
+		int slots = 0, i = 1;
+		while (descriptor.charAt(i) != ')') {
+			char c = descriptor.charAt(i++);
+			slots += c == 'J' || c == 'D' ? 2 : 1;
+			while (c == '[')
+				c = descriptor.charAt(i++);
+			if (c == 'L')
+				i = descriptor.indexOf(';', i) + 1;
+		}
+		if (!result)
+			return slots;
+		char c = descriptor.charAt(i + 1);
+		return c == 'V' ? 0 : c == 'J' || c == 'D' ? 2 : 1;
+	}
+
+	/* the stack effect is computed from the descriptor */
+	void invoke(int opcode, String owner, String name, String descriptor) {
+		int arguments = slots(descriptor, false) + (opcode == INVOKESTATIC ? 0 : 1);
+		if (opcode == INVOKEINTERFACE) {
+			u1(opcode);
+			u2(this.owner.interfaceMethodRef(owner, name, descriptor));
+			u1(arguments);
+			u1(0);
+		} else {
+			u1(opcode);
+			u2(this.owner.methodRef(owner, name, descriptor));
+		}
+		adjust(slots(descriptor, true) - arguments);
+	}
+
+	void field(int opcode, String name, String descriptor) {
+		op(opcode, owner.fieldRef(owner.name(), name, descriptor), opcode == GETSTATIC ? 1 : -1);
+	}
+
+	// local variables, allocated as a stack following the scope levels
+
+	int newLocal() {
+		maxLocals = Math.max(maxLocals, locals + 1);
+		return locals++;
+	}
+
+	int locals() {
+		return locals;
+	}
+
+	void freeLocals(int locals) {
+		this.locals = locals;
+	}
+
+	// jumps
+
+	int label() {
+		return size;
+	}
+
+	/* a forward jump whose target is set by patch; returns the address of the jump */
+	int jump(int opcode, int delta) {
+		int address = size;
+		u1(opcode);
+		u2(0);
+		adjust(delta);
+		return address;
+	}
+
+	/* a backward jump to target */
+	void jump(int opcode, int target, int delta) {
+		int offset = target - size;
+		u1(opcode);
+		u2(offset);
+		adjust(delta);
+	}
+
+	/* sets the target of the forward jump at address to the next instruction */
+	void patch(int address) {
+		int offset = size - address;
+		code[address + 1] = (byte) (offset >> 8);
+		code[address + 2] = (byte) offset;
+	}
+}
@@ -0,0 +1,68 @@
+package visitors.jit;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import visitors.evaluation.BoolValue;
+import visitors.evaluation.EvaluatorException;
+import visitors.evaluation.IntValue;
+import visitors.evaluation.ListValue;
+import visitors.evaluation.OptValue;
+import visitors.evaluation.Value;
+
+/*
+ * the operations on values called by compiled scripts, with the same
+ * semantics as in Eval; they are small enough to be inlined by the JVM
+ */
+
+final class ScriptSupport {
+	static final String NAME = "visitors/jit/ScriptSupport";
+
+	private ScriptSupport() {
+	}
+
+	static Value box(int value) {
+		return IntValue.of(value);
+	}
+
+	static Value box(boolean value) {
+		return BoolValue.of(value);
+	}
+
+	static Value list(Value[] elements) {
+		return new ListValue(Arrays.asList(elements));
+	}
+
+	static Value prefix(Value element, Value list) {
+		return list.asList().prefix(element);
+	}
+
+	static Value opt(Value value) {
+		return new OptValue(value);
+	}
+
+	static Value empty(Value value) {
+		OptValue opt = new OptValue(value.asOpt());
+		opt.modifyEmpty();
+		return opt;
+	}
+
+	static Value get(Value value) {
+		OptValue opt = value.asOpt();
+		if (opt.isEmpty())
+			throw new EvaluatorException("Expecting a opt value not a empty opt");
+		return opt.getValue();
+	}
+
+	static boolean def(Value value) {
+		return !value.asOpt().isEmpty();
+	}
+
+	static Iterator<Value> iterator(Value list) {
+		return list.asList().iterator();
+	}
+
+	static Value next(Iterator<Value> iterator) {
+		return iterator.next();
+	}
+}
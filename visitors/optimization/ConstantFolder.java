@@ -0,0 +1,170 @@
+package visitors.optimization;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import parser.ast.Add;
+import parser.ast.And;
+import parser.ast.BoolLiteral;
+import parser.ast.Def;
+import parser.ast.Empty;
+import parser.ast.Equal;
+import parser.ast.Exp;
+import parser.ast.Get;
+import parser.ast.Ident;
+import parser.ast.IntLiteral;
+import parser.ast.ListLiteral;
+import parser.ast.ManyExp;
+import parser.ast.Mul;
+import parser.ast.Not;
+import parser.ast.OptLiteral;
+import parser.ast.Prefix;
+import parser.ast.Prog;
+import parser.ast.Sign;
+import parser.ast.Stmt;
+
+/*
+ * rewrites a type checked program by folding the operators applied to
+ * literals and by simplifying the algebraic identities x+0, x*1, x==x and
+ * alike; the rewritten program prints the same output and raises the same
+ * dynamic errors, hence subexpressions which may fail are never dropped
+ */
+
+public class ConstantFolder extends Rewriter {
+
+	public static Prog fold(Prog prog) {
+		return (Prog) prog.accept(new ConstantFolder());
+	}
+
+	public static Stmt foldStmt(Stmt stmt) {
+		return (Stmt) stmt.accept(new ConstantFolder());
+	}
+
+	// auxiliary methods
+
+	private static boolean isInt(Exp exp, int value) {
+		return exp instanceof IntLiteral && ((IntLiteral) exp).getValue() == value;
+	}
+
+	private static boolean isBool(Exp exp, boolean value) {
+		return exp instanceof BoolLiteral && ((BoolLiteral) exp).getValue() == value;
+	}
+
+	private static int intOf(Exp exp) {
+		return ((IntLiteral) exp).getValue();
+	}
+
+	/* the expressions of a rewritten list literal, whose sequence is always flat */
+	private static List<Exp> itemsOf(Exp exp) {
+		return ((ManyExp) ((ListLiteral) exp).getExps()).getItems();
+	}
+
+	// expressions
+
+	@Override
+	public Exp visitAdd(Exp left, Exp right) {
+		left = rewrite(left);
+		right = rewrite(right);
+		if (left instanceof IntLiteral && right instanceof IntLiteral)
+			return new IntLiteral(intOf(left) + intOf(right));
+		if (isInt(right, 0))
+			return left;
+		if (isInt(left, 0))
+			return right;
+		return new Add(left, right);
+	}
+
+	@Override
+	public Exp visitMul(Exp left, Exp right) {
+		left = rewrite(left);
+		right = rewrite(right);
+		if (left instanceof IntLiteral && right instanceof IntLiteral)
+			return new IntLiteral(intOf(left) * intOf(right));
+		if (isInt(right, 1))
+			return left;
+		if (isInt(left, 1))
+			return right;
+		if (isInt(right, 0) && !MayFail.check(left) || isInt(left, 0) && !MayFail.check(right))
+			return new IntLiteral(0);
+		return new Mul(left, right);
+	}
+
+	/* e::[e1,...,en] is the same as [e,e1,...,en], evaluated in the same order */
+	@Override
+	public Exp visitPrefix(Exp left, Exp right) {
+		left = rewrite(left);
+		right = rewrite(right);
+		if (right instanceof ListLiteral) {
+			List<Exp> exps = new ArrayList<>();
+			exps.add(left);
+			exps.addAll(itemsOf(right));
+			return new ListLiteral(new ManyExp(exps));
+		}
+		return new Prefix(left, right);
+	}
+
+	/* the right operand is evaluated only if the left one is true */
+	@Override
+	public Exp visitAnd(Exp left, Exp right) {
+		left = rewrite(left);
+		if (isBool(left, false))
+			return left;
+		right = rewrite(right);
+		if (isBool(left, true))
+			return right;
+		if (isBool(right, true))
+			return left;
+		if (isBool(right, false) && !MayFail.check(left))
+			return right;
+		return new And(left, right);
+	}
+
+	@Override
+	public Exp visitEqual(Exp left, Exp right) {
+		left = rewrite(left);
+		right = rewrite(right);
+		if (left instanceof IntLiteral && right instanceof IntLiteral)
+			return new BoolLiteral(intOf(left) == intOf(right));
+		if (left instanceof BoolLiteral && right instanceof BoolLiteral)
+			return new BoolLiteral(((BoolLiteral) left).getValue().equals(((BoolLiteral) right).getValue()));
+		if (left instanceof Ident && left.equals(right)) // variables are always defined
+			return new BoolLiteral(true);
+		return new Equal(left, right);
+	}
+
+	@Override
+	public Exp visitSign(Exp exp) {
+		exp = rewrite(exp);
+		if (exp instanceof IntLiteral)
+			return new IntLiteral(-intOf(exp));
+		if (exp instanceof Sign)
+			return ((Sign) exp).getExp();
+		return new Sign(exp);
+	}
+
+	@Override
+	public Exp visitNot(Exp exp) {
+		exp = rewrite(exp);
+		if (exp instanceof BoolLiteral)
+			return new BoolLiteral(!((BoolLiteral) exp).getValue());
+		if (exp instanceof Not)
+			return ((Not) exp).getExp();
+		return new Not(exp);
+	}
+
+	@Override
+	public Exp visitGet(Exp exp) {
+		exp = rewrite(exp);
+		if (exp instanceof OptLiteral)
+			return ((OptLiteral) exp).getExp();
+		return new Get(exp);
+	}
+
+	@Override
+	public Exp visitDef(Exp exp) {
+		exp = rewrite(exp);
+		if ((exp instanceof OptLiteral || exp instanceof Empty) && !MayFail.check(exp))
+			return new BoolLiteral(exp instanceof OptLiteral);
+		return new Def(exp);
+	}
+}
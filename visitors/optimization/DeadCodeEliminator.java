@@ -0,0 +1,152 @@
+package visitors.optimization;
+
+import static java.util.Collections.emptyList;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import parser.ast.AST;
+import parser.ast.AssignStmt;
+import parser.ast.BoolLiteral;
+import parser.ast.Exp;
+import parser.ast.Ident;
+import parser.ast.IfStmt;
+import parser.ast.ManyStmt;
+import parser.ast.Prog;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+import parser.ast.VarStmt;
+
+/*
+ * rewrites a constant folded program by removing the branches which can never
+ * run, by inlining the taken branch of a constant condition and the body of
+ * do-while false, and by removing the declarations and assignments of the
+ * variables which are never read; a body is inlined only if it declares no
+ * variable, otherwise it keeps its own scope, and a variable is removed only
+ * if none of its values may fail, since its declarations and assignments are
+ * all removed together
+ */
+
+public class DeadCodeEliminator extends Rewriter {
+
+	private static final ManyStmt NOTHING = new ManyStmt(emptyList());
+
+	private final Set<Ident> read = new HashSet<>(); // variables read somewhere
+	private final Set<Ident> kept = new HashSet<>(); // variables assigned a value which may fail
+
+	private int branches, inlined, assignments;
+
+	/*
+	 * collects the variables which must be kept, identified by name regardless
+	 * of their scope; a variable read only to compute its own new values, as in
+	 * x = x + 1, is not considered read
+	 */
+	private class Uses extends Rewriter {
+		private Ident target; // the variable being assigned, if any
+
+		private void assigned(Ident ident, Exp exp) {
+			if (MayFail.check(exp))
+				kept.add(ident);
+			target = ident;
+		}
+
+		@Override
+		public AST visitAssignStmt(Ident ident, Exp exp) {
+			assigned(ident, exp);
+			AST stmt = super.visitAssignStmt(ident, exp);
+			target = null;
+			return stmt;
+		}
+
+		@Override
+		public AST visitVarStmt(Ident ident, Exp exp) {
+			assigned(ident, exp);
+			AST stmt = super.visitVarStmt(ident, exp);
+			target = null;
+			return stmt;
+		}
+
+		@Override
+		public Exp visitIdent(Ident ident) {
+			if (!ident.equals(target))
+				read.add(ident);
+			return ident;
+		}
+	}
+
+	public static Prog eliminate(Prog prog) {
+		return new DeadCodeEliminator().rewrite(prog);
+	}
+
+	public Prog rewrite(Prog prog) {
+		prog.accept(new Uses());
+		return (Prog) prog.accept(this);
+	}
+
+	/* number of removed or inlined statements, as a readable summary */
+	public String report() {
+		return "removed " + branches + " branches and " + assignments + " declarations and assignments, inlined "
+				+ inlined + " blocks";
+	}
+
+	// auxiliary methods
+
+	private static boolean isBool(Exp exp, boolean value) {
+		return exp instanceof BoolLiteral && ((BoolLiteral) exp).getValue() == value;
+	}
+
+	/* the statements of a taken branch, spliced into the enclosing sequence if they declare no variable */
+	private AST inline(StmtSeq block) {
+		for (Stmt stmt : ((ManyStmt) block).getItems())
+			if (stmt instanceof VarStmt)
+				return new IfStmt(new BoolLiteral(true), block);
+		inlined++;
+		return block;
+	}
+
+	private AST assigned(Ident ident, Stmt stmt) {
+		if (read.contains(ident) || kept.contains(ident))
+			return stmt;
+		assignments++;
+		return NOTHING;
+	}
+
+	// statements
+
+	@Override
+	public AST visitAssignStmt(Ident ident, Exp exp) {
+		return assigned(ident, new AssignStmt(ident, rewrite(exp)));
+	}
+
+	@Override
+	public AST visitVarStmt(Ident ident, Exp exp) {
+		return assigned(ident, new VarStmt(ident, rewrite(exp)));
+	}
+
+	@Override
+	public AST visitIfStmt(Exp exp, StmtSeq block) {
+		if (isBool(exp, false)) {
+			branches++;
+			return NOTHING;
+		}
+		if (isBool(exp, true))
+			return inline(rewriteStmts(block));
+		return super.visitIfStmt(exp, block);
+	}
+
+	@Override
+	public AST visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		if (exp instanceof BoolLiteral) {
+			branches++;
+			return inline(rewriteStmts(((BoolLiteral) exp).getValue() ? block : option));
+		}
+		return super.visitIfElseStmt(exp, block, option);
+	}
+
+	@Override
+	public AST visitDoStmt(StmtSeq stmt, Exp exp) {
+		if (isBool(exp, false))
+			return inline(rewriteStmts(stmt));
+		return super.visitDoStmt(stmt, exp);
+	}
+}
@@ -0,0 +1,216 @@
+package visitors.optimization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import parser.ast.AST;
+import parser.ast.Exp;
+import parser.ast.ExpSeq;
+import parser.ast.Ident;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+import visitors.Visitor;
+
+/*
+ * finds the for loops of a resolved program whose iterations are independent,
+ * that is, whose body assigns no variable declared outside the loop; since
+ * expressions have no side effects, such iterations only read the variables
+ * of the enclosing levels and print, hence they can run in any order as long
+ * as their output is emitted in the order of the list
+ *
+ * a variable is declared outside a loop if its depth, set by the resolver,
+ * is less than the depth of the loop variable
+ */
+
+public class IndependentLoops implements Visitor<Void> {
+
+	/* a loop being visited, and whether its body assigns an outer variable */
+	private static final class Loop {
+		final int depth;
+		boolean dependent;
+
+		Loop(int depth) {
+			this.depth = depth;
+		}
+	}
+
+	private final List<Loop> open = new ArrayList<>();
+	private final Set<StmtSeq> independent = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private IndependentLoops() {
+	}
+
+	/* the bodies of the independent loops of the resolved node, compared by identity */
+	public static Set<StmtSeq> find(AST node) {
+		IndependentLoops loops = new IndependentLoops();
+		node.accept(loops);
+		return loops.independent;
+	}
+
+	@Override
+	public Void visitProg(StmtSeq stmtSeq) {
+		return stmtSeq.accept(this);
+	}
+
+	// statements; expressions contain no statement and are not visited
+
+	@Override
+	public Void visitAssignStmt(Ident ident, Exp exp) {
+		for (Loop loop : open)
+			if (ident.getDepth() < loop.depth)
+				loop.dependent = true;
+		return null;
+	}
+
+	@Override
+	public Void visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
+		Loop loop = new Loop(ident.getDepth());
+		open.add(loop);
+		block.accept(this);
+		open.remove(open.size() - 1);
+		if (!loop.dependent)
+			independent.add(block);
+		return null;
+	}
+
+	@Override
+	public Void visitPrintStmt(Exp exp) {
+		return null;
+	}
+
+	@Override
+	public Void visitVarStmt(Ident ident, Exp exp) {
+		return null;
+	}
+
+	@Override
+	public Void visitIfStmt(Exp exp, StmtSeq block) {
+		return block.accept(this);
+	}
+
+	@Override
+	public Void visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		block.accept(this);
+		return option.accept(this);
+	}
+
+	@Override
+	public Void visitDoStmt(StmtSeq stmt, Exp exp) {
+		return stmt.accept(this);
+	}
+
+	// sequences
+
+	@Override
+	public Void visitSingleStmt(Stmt stmt) {
+		return stmt.accept(this);
+	}
+
+	@Override
+	public Void visitMoreStmt(Stmt first, StmtSeq rest) {
+		first.accept(this);
+		return rest.accept(this);
+	}
+
+	@Override
+	public Void visitManyStmt(List<Stmt> stmts) {
+		for (Stmt stmt : stmts)
+			stmt.accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visitSingleExp(Exp exp) {
+		return null;
+	}
+
+	@Override
+	public Void visitMoreExp(Exp first, ExpSeq rest) {
+		return null;
+	}
+
+	@Override
+	public Void visitManyExp(List<Exp> exps) {
+		return null;
+	}
+
+	// expressions
+
+	@Override
+	public Void visitAdd(Exp left, Exp right) {
+		return null;
+	}
+
+	@Override
+	public Void visitMul(Exp left, Exp right) {
+		return null;
+	}
+
+	@Override
+	public Void visitPrefix(Exp left, Exp right) {
+		return null;
+	}
+
+	@Override
+	public Void visitAnd(Exp left, Exp right) {
+		return null;
+	}
+
+	@Override
+	public Void visitEqual(Exp left, Exp right) {
+		return null;
+	}
+
+	@Override
+	public Void visitSign(Exp exp) {
+		return null;
+	}
+
+	@Override
+	public Void visitNot(Exp exp) {
+		return null;
+	}
+
+	@Override
+	public Void visitOptLiteral(Exp exp) {
+		return null;
+	}
+
+	@Override
+	public Void visitEmpty(Exp exp) {
+		return null;
+	}
+
+	@Override
+	public Void visitGet(Exp exp) {
+		return null;
+	}
+
+	@Override
+	public Void visitDef(Exp exp) {
+		return null;
+	}
+
+	@Override
+	public Void visitListLiteral(ExpSeq exps) {
+		return null;
+	}
+
+	@Override
+	public Void visitIntLiteral(int value) {
+		return null;
+	}
+
+	@Override
+	public Void visitBoolLiteral(Boolean value) {
+		return null;
+	}
+
+	@Override
+	public Void visitIdent(Ident ident) {
+		return null;
+	}
+}
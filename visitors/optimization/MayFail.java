@@ -0,0 +1,197 @@
+package visitors.optimization;
+
+import java.util.List;
+
+import parser.ast.AST;
+import parser.ast.Exp;
+import parser.ast.ExpSeq;
+import parser.ast.Ident;
+import parser.ast.OptLiteral;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+
+import visitors.Visitor;
+
+/*
+ * checks whether the evaluation of a well-typed node may raise a dynamic
+ * error; since expressions have no side effects, the only source of errors is
+ * get applied to an empty opt, hence any get of a value which is not an opt
+ * literal may fail
+ */
+
+public class MayFail implements Visitor<Boolean> {
+
+	private static final MayFail instance = new MayFail();
+
+	private MayFail() {
+	}
+
+	public static boolean check(AST node) {
+		return node.accept(instance);
+	}
+
+	private boolean any(AST... nodes) {
+		for (AST node : nodes)
+			if (node.accept(this))
+				return true;
+		return false;
+	}
+
+	private boolean any(List<? extends AST> nodes) {
+		for (AST node : nodes)
+			if (node.accept(this))
+				return true;
+		return false;
+	}
+
+	@Override
+	public Boolean visitProg(StmtSeq stmtSeq) {
+		return any(stmtSeq);
+	}
+
+	// statements
+
+	@Override
+	public Boolean visitAssignStmt(Ident ident, Exp exp) {
+		return any(exp);
+	}
+
+	@Override
+	public Boolean visitVarStmt(Ident ident, Exp exp) {
+		return any(exp);
+	}
+
+	@Override
+	public Boolean visitPrintStmt(Exp exp) {
+		return any(exp);
+	}
+
+	@Override
+	public Boolean visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
+		return any(exp, block);
+	}
+
+	@Override
+	public Boolean visitIfStmt(Exp exp, StmtSeq block) {
+		return any(exp, block);
+	}
+
+	@Override
+	public Boolean visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		return any(exp, block, option);
+	}
+
+	@Override
+	public Boolean visitDoStmt(StmtSeq stmt, Exp exp) {
+		return any(stmt, exp);
+	}
+
+	// sequences
+
+	@Override
+	public Boolean visitSingleStmt(Stmt stmt) {
+		return any(stmt);
+	}
+
+	@Override
+	public Boolean visitMoreStmt(Stmt first, StmtSeq rest) {
+		return any(first, rest);
+	}
+
+	@Override
+	public Boolean visitManyStmt(List<Stmt> stmts) {
+		return any(stmts);
+	}
+
+	@Override
+	public Boolean visitSingleExp(Exp exp) {
+		return any(exp);
+	}
+
+	@Override
+	public Boolean visitMoreExp(Exp first, ExpSeq rest) {
+		return any(first, rest);
+	}
+
+	@Override
+	public Boolean visitManyExp(List<Exp> exps) {
+		return any(exps);
+	}
+
+	// expressions
+
+	@Override
+	public Boolean visitGet(Exp exp) {
+		return !(exp instanceof OptLiteral) || any(exp);
+	}
+
+	@Override
+	public Boolean visitAdd(Exp left, Exp right) {
+		return any(left, right);
+	}
+
+	@Override
+	public Boolean visitMul(Exp left, Exp right) {
+		return any(left, right);
+	}
+
+	@Override
+	public Boolean visitPrefix(Exp left, Exp right) {
+		return any(left, right);
+	}
+
+	@Override
+	public Boolean visitAnd(Exp left, Exp right) {
+		return any(left, right);
+	}
+
+	@Override
+	public Boolean visitEqual(Exp left, Exp right) {
+		return any(left, right);
+	}
+
+	@Override
+	public Boolean visitSign(Exp exp) {
+		return any(exp);
+	}
+
+	@Override
+	public Boolean visitNot(Exp exp) {
+		return any(exp);
+	}
+
+	@Override
+	public Boolean visitOptLiteral(Exp exp) {
+		return any(exp);
+	}
+
+	@Override
+	public Boolean visitEmpty(Exp exp) {
+		return any(exp);
+	}
+
+	@Override
+	public Boolean visitDef(Exp exp) {
+		return any(exp);
+	}
+
+	@Override
+	public Boolean visitListLiteral(ExpSeq exps) {
+		return any(exps);
+	}
+
+	@Override
+	public Boolean visitIntLiteral(int value) {
+		return false;
+	}
+
+	@Override
+	public Boolean visitBoolLiteral(Boolean value) {
+		return false;
+	}
+
+	@Override
+	public Boolean visitIdent(Ident ident) {
+		return false; // variables are always defined in well-typed programs
+	}
+}
@@ -0,0 +1,235 @@
+package visitors.optimization;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import parser.ast.AST;
+import parser.ast.Add;
+import parser.ast.And;
+import parser.ast.AssignStmt;
+import parser.ast.BoolLiteral;
+import parser.ast.Def;
+import parser.ast.DoStmt;
+import parser.ast.Empty;
+import parser.ast.Equal;
+import parser.ast.Exp;
+import parser.ast.ExpSeq;
+import parser.ast.ForEachStmt;
+import parser.ast.Get;
+import parser.ast.Ident;
+import parser.ast.IfElseStmt;
+import parser.ast.IfStmt;
+import parser.ast.IntLiteral;
+import parser.ast.ListLiteral;
+import parser.ast.ManyExp;
+import parser.ast.ManyStmt;
+import parser.ast.Mul;
+import parser.ast.Not;
+import parser.ast.OptLiteral;
+import parser.ast.Prefix;
+import parser.ast.PrintStmt;
+import parser.ast.Prog;
+import parser.ast.ProgClass;
+import parser.ast.Sign;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+import parser.ast.VarStmt;
+
+import visitors.Visitor;
+
+/*
+ * rebuilds a copy of the visited node, with all sequences as flat lists;
+ * optimization passes override the methods of the nodes they rewrite, and a
+ * statement may be rewritten into a ManyStmt, whose statements are spliced
+ * into the enclosing sequence
+ */
+
+public abstract class Rewriter implements Visitor<AST> {
+
+	// auxiliary methods
+
+	protected Exp rewrite(Exp exp) {
+		return (Exp) exp.accept(this);
+	}
+
+	protected StmtSeq rewriteStmts(StmtSeq seq) {
+		return (StmtSeq) seq.accept(this);
+	}
+
+	protected ExpSeq rewriteExps(ExpSeq seq) {
+		return (ExpSeq) seq.accept(this);
+	}
+
+	private void add(Stmt stmt, List<Stmt> stmts) {
+		AST rewritten = stmt.accept(this);
+		if (rewritten instanceof ManyStmt)
+			stmts.addAll(((ManyStmt) rewritten).getItems());
+		else
+			stmts.add((Stmt) rewritten);
+	}
+
+	@Override
+	public Prog visitProg(StmtSeq stmtSeq) {
+		return new ProgClass(rewriteStmts(stmtSeq));
+	}
+
+	// statements
+
+	@Override
+	public AST visitAssignStmt(Ident ident, Exp exp) {
+		return new AssignStmt(ident, rewrite(exp));
+	}
+
+	@Override
+	public AST visitVarStmt(Ident ident, Exp exp) {
+		return new VarStmt(ident, rewrite(exp));
+	}
+
+	@Override
+	public AST visitPrintStmt(Exp exp) {
+		return new PrintStmt(rewrite(exp));
+	}
+
+	@Override
+	public AST visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
+		return new ForEachStmt(ident, rewrite(exp), rewriteStmts(block));
+	}
+
+	@Override
+	public AST visitIfStmt(Exp exp, StmtSeq block) {
+		return new IfStmt(rewrite(exp), rewriteStmts(block));
+	}
+
+	@Override
+	public AST visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		return new IfElseStmt(rewrite(exp), rewriteStmts(block), rewriteStmts(option));
+	}
+
+	@Override
+	public AST visitDoStmt(StmtSeq stmt, Exp exp) {
+		return new DoStmt(rewriteStmts(stmt), rewrite(exp));
+	}
+
+	// sequences
+
+	@Override
+	public StmtSeq visitSingleStmt(Stmt stmt) {
+		List<Stmt> stmts = new ArrayList<>(1);
+		add(stmt, stmts);
+		return new ManyStmt(stmts);
+	}
+
+	@Override
+	public StmtSeq visitMoreStmt(Stmt first, StmtSeq rest) {
+		List<Stmt> stmts = new ArrayList<>();
+		add(first, stmts);
+		stmts.addAll(((ManyStmt) rewriteStmts(rest)).getItems());
+		return new ManyStmt(stmts);
+	}
+
+	@Override
+	public StmtSeq visitManyStmt(List<Stmt> stmts) {
+		List<Stmt> rewritten = new ArrayList<>(stmts.size());
+		for (Stmt stmt : stmts)
+			add(stmt, rewritten);
+		return new ManyStmt(rewritten);
+	}
+
+	@Override
+	public ExpSeq visitSingleExp(Exp exp) {
+		return new ManyExp(List.of(rewrite(exp)));
+	}
+
+	@Override
+	public ExpSeq visitMoreExp(Exp first, ExpSeq rest) {
+		List<Exp> exps = new ArrayList<>();
+		exps.add(rewrite(first));
+		exps.addAll(((ManyExp) rewriteExps(rest)).getItems());
+		return new ManyExp(exps);
+	}
+
+	@Override
+	public ExpSeq visitManyExp(List<Exp> exps) {
+		List<Exp> rewritten = new ArrayList<>(exps.size());
+		for (Exp exp : exps)
+			rewritten.add(rewrite(exp));
+		return new ManyExp(rewritten);
+	}
+
+	// expressions
+
+	@Override
+	public Exp visitAdd(Exp left, Exp right) {
+		return new Add(rewrite(left), rewrite(right));
+	}
+
+	@Override
+	public Exp visitMul(Exp left, Exp right) {
+		return new Mul(rewrite(left), rewrite(right));
+	}
+
+	@Override
+	public Exp visitPrefix(Exp left, Exp right) {
+		return new Prefix(rewrite(left), rewrite(right));
+	}
+
+	@Override
+	public Exp visitAnd(Exp left, Exp right) {
+		return new And(rewrite(left), rewrite(right));
+	}
+
+	@Override
+	public Exp visitEqual(Exp left, Exp right) {
+		return new Equal(rewrite(left), rewrite(right));
+	}
+
+	@Override
+	public Exp visitSign(Exp exp) {
+		return new Sign(rewrite(exp));
+	}
+
+	@Override
+	public Exp visitNot(Exp exp) {
+		return new Not(rewrite(exp));
+	}
+
+	@Override
+	public Exp visitOptLiteral(Exp exp) {
+		return new OptLiteral(rewrite(exp));
+	}
+
+	@Override
+	public Exp visitEmpty(Exp exp) {
+		return new Empty(rewrite(exp));
+	}
+
+	@Override
+	public Exp visitGet(Exp exp) {
+		return new Get(rewrite(exp));
+	}
+
+	@Override
+	public Exp visitDef(Exp exp) {
+		return new Def(rewrite(exp));
+	}
+
+	@Override
+	public Exp visitListLiteral(ExpSeq exps) {
+		return new ListLiteral(rewriteExps(exps));
+	}
+
+	@Override
+	public Exp visitIntLiteral(int value) {
+		return new IntLiteral(value);
+	}
+
+	@Override
+	public Exp visitBoolLiteral(Boolean value) {
+		return new BoolLiteral(value);
+	}
+
+	@Override
+	public Exp visitIdent(Ident ident) {
+		return ident;
+	}
+}
@@ -0,0 +1,249 @@
+package visitors.resolution;
+
+import java.util.Arrays;
+import java.util.List;
+
+import environments.PooledEnvironment;
+import parser.ast.Exp;
+import parser.ast.ExpSeq;
+import parser.ast.Ident;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+import visitors.Visitor;
+
+/*
+ * static scope resolution: annotates every identifier with the lexical
+ * address of its declaration, that is, the depth of the scope level which
+ * declares it and its slot in the frame of that level; scope levels are
+ * entered and exited as in Eval, and declarations are resolved in order, as
+ * in TypeCheck, hence a variable refers to its most recent declaration
+ *
+ * the top-level scope is kept between calls, so that top-level statements
+ * can be resolved one at a time; throws EnvironmentException for undeclared
+ * variables, which cannot occur in type checked programs
+ */
+
+public class Resolver implements Visitor<Void> {
+
+	private final PooledEnvironment<Ident> env = new PooledEnvironment<>(); // the declaring identifiers
+	private int[] slots = new int[8]; // the number of slots of each scope level
+	private int depth;
+
+	private void enterLevel() {
+		env.enterLevel();
+		if (++depth == slots.length)
+			slots = Arrays.copyOf(slots, 2 * depth);
+		slots[depth] = 0;
+	}
+
+	private void exitLevel() {
+		env.exitLevel();
+		depth--;
+	}
+
+	/* a new slot in the most nested scope level, also for redeclared variables */
+	private void declare(Ident ident) {
+		ident.setAddress(depth, slots[depth]++);
+		env.dec(ident, ident);
+	}
+
+	private void resolve(Ident ident) {
+		Ident decl = env.lookup(ident);
+		ident.setAddress(decl.getDepth(), decl.getSlot());
+	}
+
+	@Override
+	public Void visitProg(StmtSeq stmtSeq) {
+		stmtSeq.accept(this);
+		return null;
+	}
+
+	// statements
+
+	@Override
+	public Void visitAssignStmt(Ident ident, Exp exp) {
+		exp.accept(this);
+		resolve(ident);
+		return null;
+	}
+
+	@Override
+	public Void visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
+		exp.accept(this);
+		enterLevel();
+		declare(ident);
+		block.accept(this);
+		exitLevel();
+		return null;
+	}
+
+	@Override
+	public Void visitPrintStmt(Exp exp) {
+		exp.accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visitVarStmt(Ident ident, Exp exp) {
+		exp.accept(this);
+		declare(ident);
+		return null;
+	}
+
+	@Override
+	public Void visitIfStmt(Exp exp, StmtSeq block) {
+		exp.accept(this);
+		enterLevel();
+		block.accept(this);
+		exitLevel();
+		return null;
+	}
+
+	@Override
+	public Void visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		exp.accept(this);
+		enterLevel();
+		block.accept(this);
+		exitLevel();
+		enterLevel();
+		option.accept(this);
+		exitLevel();
+		return null;
+	}
+
+	/* the condition is evaluated in the enclosing scope level */
+	@Override
+	public Void visitDoStmt(StmtSeq stmt, Exp exp) {
+		enterLevel();
+		stmt.accept(this);
+		exitLevel();
+		exp.accept(this);
+		return null;
+	}
+
+	// sequences
+
+	@Override
+	public Void visitSingleStmt(Stmt stmt) {
+		stmt.accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visitMoreStmt(Stmt first, StmtSeq rest) {
+		first.accept(this);
+		rest.accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visitManyStmt(List<Stmt> stmts) {
+		for (Stmt stmt : stmts)
+			stmt.accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visitSingleExp(Exp exp) {
+		exp.accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visitMoreExp(Exp first, ExpSeq rest) {
+		first.accept(this);
+		rest.accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visitManyExp(List<Exp> exps) {
+		for (Exp exp : exps)
+			exp.accept(this);
+		return null;
+	}
+
+	// expressions
+
+	private Void visitBinaryOp(Exp left, Exp right) {
+		left.accept(this);
+		right.accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visitAdd(Exp left, Exp right) {
+		return visitBinaryOp(left, right);
+	}
+
+	@Override
+	public Void visitMul(Exp left, Exp right) {
+		return visitBinaryOp(left, right);
+	}
+
+	@Override
+	public Void visitPrefix(Exp left, Exp right) {
+		return visitBinaryOp(left, right);
+	}
+
+	@Override
+	public Void visitAnd(Exp left, Exp right) {
+		return visitBinaryOp(left, right);
+	}
+
+	@Override
+	public Void visitEqual(Exp left, Exp right) {
+		return visitBinaryOp(left, right);
+	}
+
+	@Override
+	public Void visitSign(Exp exp) {
+		return exp.accept(this);
+	}
+
+	@Override
+	public Void visitNot(Exp exp) {
+		return exp.accept(this);
+	}
+
+	@Override
+	public Void visitOptLiteral(Exp exp) {
+		return exp.accept(this);
+	}
+
+	@Override
+	public Void visitEmpty(Exp exp) {
+		return exp.accept(this);
+	}
+
+	@Override
+	public Void visitGet(Exp exp) {
+		return exp.accept(this);
+	}
+
+	@Override
+	public Void visitDef(Exp exp) {
+		return exp.accept(this);
+	}
+
+	@Override
+	public Void visitListLiteral(ExpSeq exps) {
+		return exps.accept(this);
+	}
+
+	@Override
+	public Void visitIntLiteral(int value) {
+		return null;
+	}
+
+	@Override
+	public Void visitBoolLiteral(Boolean value) {
+		return null;
+	}
+
+	@Override
+	public Void visitIdent(Ident ident) {
+		resolve(ident);
+		return null;
+	}
+}
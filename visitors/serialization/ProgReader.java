@@ -0,0 +1,188 @@
+package visitors.serialization;
+
+import static visitors.serialization.ProgWriter.*;
+import static visitors.serialization.Tag.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import parser.SymbolTable;
+import parser.ast.*;
+
+/*
+ * reads programs in the precompiled binary format written by ProgWriter; the
+ * file is read at once and decoded in a single linear pass, without lexing,
+ * parsing and type checking
+ */
+
+public class ProgReader {
+	private final ByteBuffer in;
+	private int[] ids; // from the indexes in the file to the global ids of identifiers
+	private byte[] sourceHash;
+	private Path sourcePath; // the source the program has been compiled from
+
+	private ProgReader(ByteBuffer in) {
+		this.in = in;
+	}
+
+	/*
+	 * reads the precompiled program in file bin; the program is rejected
+	 * unless it has been compiled from the current content of source, or, if
+	 * source is null, of the source file stored in the header, when it still
+	 * exists
+	 */
+	public static Prog read(Path bin, Path source) throws IOException {
+		ProgReader reader = new ProgReader(ByteBuffer.wrap(Files.readAllBytes(bin)));
+		try {
+			reader.readHeader();
+			if (source == null && Files.isRegularFile(reader.sourcePath))
+				source = reader.sourcePath;
+			if (source != null && !Arrays.equals(reader.sourceHash, ProgWriter.sourceHash(source)))
+				throw new IOException("Stale precompiled program " + bin + ", recompile " + source);
+			Prog prog = reader.readProg();
+			if (reader.in.hasRemaining())
+				throw invalid();
+			return prog;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw invalid();
+		}
+	}
+
+	private static IOException invalid() {
+		return new IOException("Corrupted precompiled program");
+	}
+
+	private void readHeader() throws IOException {
+		if (in.remaining() < 8 || in.getInt() != MAGIC)
+			throw new IOException("Not a precompiled program");
+		int version = in.getInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported version " + version + " of precompiled programs");
+		sourceHash = new byte[HASH_LENGTH];
+		in.get(sourceHash);
+		DataInputStream names = new DataInputStream(
+				new ByteArrayInputStream(in.array(), in.position(), in.remaining()));
+		sourcePath = Path.of(names.readUTF());
+		ids = new int[names.readInt()];
+		SymbolTable symbols = SymbolTable.global();
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = symbols.intern(names.readUTF());
+		in.position(in.limit() - names.available());
+	}
+
+	private byte expect(byte... tags) throws IOException {
+		byte tag = in.get();
+		for (byte t : tags)
+			if (tag == t)
+				return tag;
+		throw invalid();
+	}
+
+	private Ident readIdent() throws IOException {
+		int index = in.getInt();
+		if (index < 0 || index >= ids.length)
+			throw invalid();
+		return new SimpleIdent(ids[index]);
+	}
+
+	private Prog readProg() throws IOException {
+		expect(PROG);
+		return new ProgClass(readStmtSeq());
+	}
+
+	private StmtSeq readStmtSeq() throws IOException {
+		switch (expect(SINGLE_STMT, MORE_STMT, MANY_STMT)) {
+		case SINGLE_STMT:
+			return new SingleStmt(readStmt());
+		case MORE_STMT:
+			return new MoreStmt(readStmt(), readStmtSeq());
+		default:
+			int size = in.getInt();
+			List<Stmt> stmts = new ArrayList<>(Math.min(size, in.remaining()));
+			for (int i = 0; i < size; i++)
+				stmts.add(readStmt());
+			return new ManyStmt(stmts);
+		}
+	}
+
+	private Stmt readStmt() throws IOException {
+		switch (in.get()) {
+		case ASSIGN:
+			return new AssignStmt(readIdent(), readExp());
+		case VAR:
+			return new VarStmt(readIdent(), readExp());
+		case PRINT:
+			return new PrintStmt(readExp());
+		case FOR:
+			return new ForEachStmt(readIdent(), readExp(), readStmtSeq());
+		case IF:
+			return new IfStmt(readExp(), readStmtSeq());
+		case IF_ELSE:
+			return new IfElseStmt(readExp(), readStmtSeq(), readStmtSeq());
+		case DO:
+			return new DoStmt(readStmtSeq(), readExp());
+		default:
+			throw invalid();
+		}
+	}
+
+	private ExpSeq readExpSeq() throws IOException {
+		switch (expect(SINGLE_EXP, MORE_EXP, MANY_EXP)) {
+		case SINGLE_EXP:
+			return new SingleExp(readExp());
+		case MORE_EXP:
+			return new MoreExp(readExp(), readExpSeq());
+		default:
+			int size = in.getInt();
+			List<Exp> exps = new ArrayList<>(Math.min(size, in.remaining()));
+			for (int i = 0; i < size; i++)
+				exps.add(readExp());
+			return new ManyExp(exps);
+		}
+	}
+
+	private Exp readExp() throws IOException {
+		switch (in.get()) {
+		case ADD:
+			return new Add(readExp(), readExp());
+		case MUL:
+			return new Mul(readExp(), readExp());
+		case PREFIX:
+			return new Prefix(readExp(), readExp());
+		case AND:
+			return new And(readExp(), readExp());
+		case EQUAL:
+			return new Equal(readExp(), readExp());
+		case SIGN:
+			return new Sign(readExp());
+		case NOT:
+			return new Not(readExp());
+		case OPT:
+			return new OptLiteral(readExp());
+		case EMPTY:
+			return new Empty(readExp());
+		case DEF:
+			return new Def(readExp());
+		case GET:
+			return new Get(readExp());
+		case INT:
+			return new IntLiteral(in.getInt());
+		case BOOL:
+			return new BoolLiteral(in.get() != 0);
+		case IDENT:
+			return readIdent();
+		case LIST:
+			return new ListLiteral(readExpSeq());
+		default:
+			throw invalid();
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package visitors.serialization;
+
+import static visitors.serialization.Tag.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import parser.ast.AST;
+import parser.ast.Exp;
+import parser.ast.ExpSeq;
+import parser.ast.Ident;
+import parser.ast.Prog;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+import visitors.Visitor;
+
+/*
+ * writes programs in the precompiled binary format read by ProgReader:
+ *
+ * Header ::= MAGIC VERSION SourceHash SourcePath Symbols
+ * SourceHash ::= the SHA-256 digest of the source file, 32 bytes
+ * SourcePath ::= the absolute path of the source file in modified UTF-8
+ * Symbols ::= count name* (the names of the identifiers in modified UTF-8)
+ * Body ::= the nodes in preorder, each one a tag byte followed by its
+ * payload: ints for literals, identifiers (indexes in Symbols) and lengths of
+ * sequences, a byte for booleans, then the children
+ */
+
+public class ProgWriter implements Visitor<Void> {
+	static final int MAGIC = 0x4C504F42;
+	static final int VERSION = 2;
+	static final int HASH_LENGTH = 32;
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final DataOutputStream body = new DataOutputStream(bytes);
+	private final Map<Integer, Integer> symbols = new HashMap<>(); // from global ids to indexes in names
+	private final List<String> names = new ArrayList<>();
+
+	private ProgWriter() {
+	}
+
+	/* returns the hash of the source file stored in the header */
+	public static byte[] sourceHash(Path source) throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(source));
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError("SHA-256 is always supported", e);
+		}
+	}
+
+	/* writes the already type-checked program prog compiled from source, whose hash and path are stored */
+	public static void write(Prog prog, Path source, OutputStream out) throws IOException {
+		byte[] sourceHash = sourceHash(source);
+		ProgWriter writer = new ProgWriter();
+		try {
+			prog.accept(writer);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		header.write(sourceHash, 0, HASH_LENGTH);
+		header.writeUTF(source.toAbsolutePath().normalize().toString());
+		header.writeInt(writer.names.size());
+		for (String name : writer.names)
+			header.writeUTF(name);
+		writer.bytes.writeTo(header);
+		header.flush();
+	}
+
+	private void writeTag(byte tag) {
+		try {
+			body.writeByte(tag);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeInt(int value) {
+		try {
+			body.writeInt(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeIdent(Ident ident) {
+		Integer index = symbols.get(ident.getId());
+		if (index == null) {
+			index = names.size();
+			symbols.put(ident.getId(), index);
+			names.add(ident.getName());
+		}
+		writeInt(index);
+	}
+
+	private Void write(byte tag, AST... children) {
+		writeTag(tag);
+		for (AST child : children)
+			child.accept(this);
+		return null;
+	}
+
+	private Void write(byte tag, Ident ident, AST... children) {
+		writeTag(tag);
+		writeIdent(ident);
+		for (AST child : children)
+			child.accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visitProg(StmtSeq stmtSeq) {
+		return write(PROG, stmtSeq);
+	}
+
+	// statements
+
+	@Override
+	public Void visitAssignStmt(Ident ident, Exp exp) {
+		return write(ASSIGN, ident, exp);
+	}
+
+	@Override
+	public Void visitVarStmt(Ident ident, Exp exp) {
+		return write(VAR, ident, exp);
+	}
+
+	@Override
+	public Void visitPrintStmt(Exp exp) {
+		return write(PRINT, exp);
+	}
+
+	@Override
+	public Void visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
+		return write(FOR, ident, exp, block);
+	}
+
+	@Override
+	public Void visitIfStmt(Exp exp, StmtSeq block) {
+		return write(IF, exp, block);
+	}
+
+	@Override
+	public Void visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		return write(IF_ELSE, exp, block, option);
+	}
+
+	@Override
+	public Void visitDoStmt(StmtSeq stmt, Exp exp) {
+		return write(DO, stmt, exp);
+	}
+
+	// sequences of statements
+
+	@Override
+	public Void visitSingleStmt(Stmt stmt) {
+		return write(SINGLE_STMT, stmt);
+	}
+
+	@Override
+	public Void visitMoreStmt(Stmt first, StmtSeq rest) {
+		return write(MORE_STMT, first, rest);
+	}
+
+	@Override
+	public Void visitManyStmt(List<Stmt> stmts) {
+		writeTag(MANY_STMT);
+		writeInt(stmts.size());
+		for (Stmt stmt : stmts)
+			stmt.accept(this);
+		return null;
+	}
+
+	// expressions
+
+	@Override
+	public Void visitAdd(Exp left, Exp right) {
+		return write(ADD, left, right);
+	}
+
+	@Override
+	public Void visitMul(Exp left, Exp right) {
+		return write(MUL, left, right);
+	}
+
+	@Override
+	public Void visitPrefix(Exp left, Exp right) {
+		return write(PREFIX, left, right);
+	}
+
+	@Override
+	public Void visitAnd(Exp left, Exp right) {
+		return write(AND, left, right);
+	}
+
+	@Override
+	public Void visitEqual(Exp left, Exp right) {
+		return write(EQUAL, left, right);
+	}
+
+	@Override
+	public Void visitSign(Exp exp) {
+		return write(SIGN, exp);
+	}
+
+	@Override
+	public Void visitNot(Exp exp) {
+		return write(NOT, exp);
+	}
+
+	@Override
+	public Void visitOptLiteral(Exp exp) {
+		return write(OPT, exp);
+	}
+
+	@Override
+	public Void visitEmpty(Exp exp) {
+		return write(EMPTY, exp);
+	}
+
+	@Override
+	public Void visitDef(Exp exp) {
+		return write(DEF, exp);
+	}
+
+	@Override
+	public Void visitGet(Exp exp) {
+		return write(GET, exp);
+	}
+
+	@Override
+	public Void visitIntLiteral(int value) {
+		writeTag(INT);
+		writeInt(value);
+		return null;
+	}
+
+	@Override
+	public Void visitBoolLiteral(Boolean value) {
+		writeTag(BOOL);
+		writeTag(value ? (byte) 1 : (byte) 0);
+		return null;
+	}
+
+	@Override
+	public Void visitIdent(Ident ident) {
+		writeTag(IDENT);
+		writeIdent(ident);
+		return null;
+	}
+
+	@Override
+	public Void visitListLiteral(ExpSeq exps) {
+		return write(LIST, exps);
+	}
+
+	// sequences of expressions
+
+	@Override
+	public Void visitSingleExp(Exp exp) {
+		return write(SINGLE_EXP, exp);
+	}
+
+	@Override
+	public Void visitMoreExp(Exp first, ExpSeq rest) {
+		return write(MORE_EXP, first, rest);
+	}
+
+	@Override
+	public Void visitManyExp(List<Exp> exps) {
+		writeTag(MANY_EXP);
+		writeInt(exps.size());
+		for (Exp exp : exps)
+			exp.accept(this);
+		return null;
+	}
+}
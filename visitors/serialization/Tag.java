@@ -0,0 +1,19 @@
+package visitors.serialization;
+
+/* the tags identifying the nodes in precompiled programs */
+
+final class Tag {
+	static final byte PROG = 0;
+	// statements
+	static final byte ASSIGN = 1, VAR = 2, PRINT = 3, FOR = 4, IF = 5, IF_ELSE = 6, DO = 7;
+	// sequences of statements
+	static final byte SINGLE_STMT = 8, MORE_STMT = 9, MANY_STMT = 10;
+	// expressions
+	static final byte ADD = 11, MUL = 12, PREFIX = 13, AND = 14, EQUAL = 15, SIGN = 16, NOT = 17, OPT = 18, EMPTY = 19,
+			DEF = 20, GET = 21, INT = 22, BOOL = 23, IDENT = 24, LIST = 25;
+	// sequences of expressions
+	static final byte SINGLE_EXP = 26, MORE_EXP = 27, MANY_EXP = 28;
+
+	private Tag() {
+	}
+}
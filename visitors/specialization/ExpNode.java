@@ -0,0 +1,20 @@
+package visitors.specialization;
+
+import visitors.evaluation.Value;
+
+/*
+ * an expression node; nodes specialized for ints and bools override
+ * executeInt or executeBool, which by default unbox the value
+ */
+
+abstract class ExpNode extends Node {
+	abstract Value executeValue(Frames frames);
+
+	int executeInt(Frames frames) {
+		return executeValue(frames).asInt();
+	}
+
+	boolean executeBool(Frames frames) {
+		return executeValue(frames).asBool();
+	}
+}
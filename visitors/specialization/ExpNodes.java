@@ -0,0 +1,500 @@
+package visitors.specialization;
+
+import static visitors.specialization.Specialization.check;
+import static visitors.specialization.Specialization.isBool;
+import static visitors.specialization.Specialization.isInt;
+import static visitors.specialization.Specialization.isList;
+import static visitors.typechecking.PrimtType.BOOL;
+import static visitors.typechecking.PrimtType.INT;
+
+import java.util.Arrays;
+
+import visitors.evaluation.BoolValue;
+import visitors.evaluation.EvaluatorException;
+import visitors.evaluation.IntValue;
+import visitors.evaluation.ListValue;
+import visitors.evaluation.OptValue;
+import visitors.evaluation.Value;
+import visitors.typechecking.Type;
+
+/*
+ * the expression nodes; an uninitialized node evaluates its operands as
+ * values the first time it is executed, and replaces itself with the node
+ * specialized for the observed operands, which evaluates them unboxed
+ */
+
+final class ExpNodes {
+
+	private ExpNodes() {
+	}
+
+	abstract static class Unary extends ExpNode {
+		ExpNode exp;
+
+		Unary(ExpNode exp) {
+			this.exp = adopt(exp);
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			if (exp == oldChild)
+				exp = (ExpNode) newChild;
+		}
+	}
+
+	abstract static class Binary extends ExpNode {
+		ExpNode left, right;
+
+		Binary(ExpNode left, ExpNode right) {
+			this.left = adopt(left);
+			this.right = adopt(right);
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			if (left == oldChild)
+				left = (ExpNode) newChild;
+			else if (right == oldChild)
+				right = (ExpNode) newChild;
+		}
+	}
+
+	abstract static class IntNode extends ExpNode {
+		@Override
+		abstract int executeInt(Frames frames);
+
+		@Override
+		Value executeValue(Frames frames) {
+			return IntValue.of(executeInt(frames));
+		}
+	}
+
+	abstract static class BoolNode extends ExpNode {
+		@Override
+		abstract boolean executeBool(Frames frames);
+
+		@Override
+		Value executeValue(Frames frames) {
+			return BoolValue.of(executeBool(frames));
+		}
+	}
+
+	// literals
+
+	static final class IntConstant extends IntNode {
+		private final int value;
+
+		IntConstant(int value) {
+			this.value = value;
+		}
+
+		@Override
+		int executeInt(Frames frames) {
+			return value;
+		}
+	}
+
+	static final class BoolConstant extends BoolNode {
+		private final boolean value;
+
+		BoolConstant(boolean value) {
+			this.value = value;
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			return value;
+		}
+	}
+
+	static final class ListNode extends ExpNode {
+		private final ExpNode[] elements;
+
+		ListNode(ExpNode[] elements) {
+			this.elements = elements;
+			for (ExpNode element : elements)
+				adopt(element);
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			for (int i = 0; i < elements.length; i++)
+				if (elements[i] == oldChild)
+					elements[i] = (ExpNode) newChild;
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			Value[] values = new Value[elements.length];
+			for (int i = 0; i < values.length; i++)
+				values[i] = elements[i].executeValue(frames);
+			return new ListValue(Arrays.asList(values));
+		}
+	}
+
+	// variables
+
+	/* reads the slot of a variable, and replaces itself with a read from the frame of the run */
+	static final class UninitializedRead extends ExpNode {
+		private final int depth, slot;
+		private final Type type;
+
+		UninitializedRead(int depth, int slot, Type type) {
+			this.depth = depth;
+			this.slot = slot;
+			this.type = type;
+		}
+
+		private ExpNode specialize(Frames frames) {
+			if (type == INT)
+				return replace(new ReadInt(frames.ints[depth], slot));
+			if (type == BOOL)
+				return replace(new ReadBool(frames.ints[depth], slot));
+			return replace(new ReadValue(frames.values[depth], slot));
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return specialize(frames).executeValue(frames);
+		}
+
+		@Override
+		int executeInt(Frames frames) {
+			return specialize(frames).executeInt(frames);
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			return specialize(frames).executeBool(frames);
+		}
+	}
+
+	static final class ReadInt extends IntNode {
+		private final int[] frame;
+		private final int slot;
+
+		ReadInt(int[] frame, int slot) {
+			this.frame = frame;
+			this.slot = slot;
+		}
+
+		@Override
+		int executeInt(Frames frames) {
+			return frame[slot];
+		}
+	}
+
+	static final class ReadBool extends BoolNode {
+		private final int[] frame;
+		private final int slot;
+
+		ReadBool(int[] frame, int slot) {
+			this.frame = frame;
+			this.slot = slot;
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			return frame[slot] != 0;
+		}
+	}
+
+	static final class ReadValue extends ExpNode {
+		private final Value[] frame;
+		private final int slot;
+
+		ReadValue(Value[] frame, int slot) {
+			this.frame = frame;
+			this.slot = slot;
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return frame[slot];
+		}
+	}
+
+	// arithmetic
+
+	static final class UninitializedAdd extends Binary {
+		private final Type type;
+
+		UninitializedAdd(ExpNode left, ExpNode right, Type type) {
+			super(left, right);
+			this.type = type;
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return IntValue.of(executeInt(frames));
+		}
+
+		@Override
+		int executeInt(Frames frames) {
+			Value l = check(left.executeValue(frames), type), r = check(right.executeValue(frames), type);
+			if (!isInt(l) || !isInt(r))
+				throw new IllegalStateException("No specialization of + for " + l + " and " + r);
+			replace(new AddIntInt(left, right));
+			return l.asInt() + r.asInt();
+		}
+	}
+
+	static final class AddIntInt extends Binary {
+		AddIntInt(ExpNode left, ExpNode right) {
+			super(left, right);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return IntValue.of(executeInt(frames));
+		}
+
+		@Override
+		int executeInt(Frames frames) {
+			return left.executeInt(frames) + right.executeInt(frames);
+		}
+	}
+
+	static final class UninitializedMul extends Binary {
+		private final Type type;
+
+		UninitializedMul(ExpNode left, ExpNode right, Type type) {
+			super(left, right);
+			this.type = type;
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return IntValue.of(executeInt(frames));
+		}
+
+		@Override
+		int executeInt(Frames frames) {
+			Value l = check(left.executeValue(frames), type), r = check(right.executeValue(frames), type);
+			if (!isInt(l) || !isInt(r))
+				throw new IllegalStateException("No specialization of * for " + l + " and " + r);
+			replace(new MulIntInt(left, right));
+			return l.asInt() * r.asInt();
+		}
+	}
+
+	static final class MulIntInt extends Binary {
+		MulIntInt(ExpNode left, ExpNode right) {
+			super(left, right);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return IntValue.of(executeInt(frames));
+		}
+
+		@Override
+		int executeInt(Frames frames) {
+			return left.executeInt(frames) * right.executeInt(frames);
+		}
+	}
+
+	static final class NegInt extends Unary {
+		NegInt(ExpNode exp) {
+			super(exp);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return IntValue.of(executeInt(frames));
+		}
+
+		@Override
+		int executeInt(Frames frames) {
+			return -exp.executeInt(frames);
+		}
+	}
+
+	// booleans
+
+	static final class NotBool extends Unary {
+		NotBool(ExpNode exp) {
+			super(exp);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return BoolValue.of(executeBool(frames));
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			return !exp.executeBool(frames);
+		}
+	}
+
+	/* the right operand is evaluated only if the left one is true */
+	static final class AndBool extends Binary {
+		AndBool(ExpNode left, ExpNode right) {
+			super(left, right);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return BoolValue.of(executeBool(frames));
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			return left.executeBool(frames) && right.executeBool(frames);
+		}
+	}
+
+	static final class UninitializedEqual extends Binary {
+		private final Type type;
+
+		UninitializedEqual(ExpNode left, ExpNode right, Type type) {
+			super(left, right);
+			this.type = type;
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return BoolValue.of(executeBool(frames));
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			Value l = check(left.executeValue(frames), type), r = check(right.executeValue(frames), type);
+			if (isInt(l))
+				replace(new EqualInt(left, right));
+			else if (isBool(l))
+				replace(new EqualBool(left, right));
+			else if (isList(l))
+				replace(new EqualList(left, right));
+			else
+				replace(new EqualOpt(left, right));
+			return l.equals(r);
+		}
+	}
+
+	abstract static class Equal extends Binary {
+		Equal(ExpNode left, ExpNode right) {
+			super(left, right);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return BoolValue.of(executeBool(frames));
+		}
+	}
+
+	static final class EqualInt extends Equal {
+		EqualInt(ExpNode left, ExpNode right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			return left.executeInt(frames) == right.executeInt(frames);
+		}
+	}
+
+	static final class EqualBool extends Equal {
+		EqualBool(ExpNode left, ExpNode right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			return left.executeBool(frames) == right.executeBool(frames);
+		}
+	}
+
+	static final class EqualList extends Equal {
+		EqualList(ExpNode left, ExpNode right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			ListValue l = (ListValue) left.executeValue(frames);
+			return l.equals(right.executeValue(frames));
+		}
+	}
+
+	static final class EqualOpt extends Equal {
+		EqualOpt(ExpNode left, ExpNode right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			OptValue l = (OptValue) left.executeValue(frames);
+			return l.equals(right.executeValue(frames));
+		}
+	}
+
+	// lists and opts, always boxed
+
+	static final class Prefix extends Binary {
+		Prefix(ExpNode left, ExpNode right) {
+			super(left, right);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			Value element = left.executeValue(frames);
+			return right.executeValue(frames).asList().prefix(element);
+		}
+	}
+
+	static final class Opt extends Unary {
+		Opt(ExpNode exp) {
+			super(exp);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return new OptValue(exp.executeValue(frames));
+		}
+	}
+
+	static final class Empty extends Unary {
+		Empty(ExpNode exp) {
+			super(exp);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			OptValue opt = new OptValue(exp.executeValue(frames).asOpt());
+			opt.modifyEmpty();
+			return opt;
+		}
+	}
+
+	static final class Get extends Unary {
+		Get(ExpNode exp) {
+			super(exp);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			OptValue opt = exp.executeValue(frames).asOpt();
+			if (opt.isEmpty())
+				throw new EvaluatorException("Expecting a opt value not a empty opt");
+			return opt.getValue();
+		}
+	}
+
+	static final class Def extends Unary {
+		Def(ExpNode exp) {
+			super(exp);
+		}
+
+		@Override
+		Value executeValue(Frames frames) {
+			return BoolValue.of(executeBool(frames));
+		}
+
+		@Override
+		boolean executeBool(Frames frames) {
+			return !exp.executeValue(frames).asOpt().isEmpty();
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package visitors.specialization;
+
+import java.io.PrintWriter;
+
+import visitors.evaluation.Value;
+
+/*
+ * the frames of the scope levels, one for each depth, allocated once for the
+ * whole run since a variable is never read before being declared in its
+ * current scope level; ints and bools, as 0 and 1, are kept in the int slots
+ */
+
+final class Frames {
+	final int[][] ints;
+	final Value[][] values;
+	final PrintWriter p;
+
+	Frames(int[] frameSizes, PrintWriter p) {
+		ints = new int[frameSizes.length][];
+		values = new Value[frameSizes.length][];
+		for (int depth = 0; depth < frameSizes.length; depth++) {
+			ints[depth] = new int[frameSizes[depth]];
+			values[depth] = new Value[frameSizes[depth]];
+		}
+		this.p = p;
+	}
+}
@@ -0,0 +1,28 @@
+package visitors.specialization;
+
+/*
+ * a node of the executable tree; nodes rewrite themselves in place, by
+ * replacing themselves in their parent, which must then execute the new node
+ */
+
+abstract class Node {
+	Node parent;
+
+	/* sets this node as the parent of child */
+	<T extends Node> T adopt(T child) {
+		child.parent = this;
+		return child;
+	}
+
+	/* replaces this node with node in its parent; returns node */
+	<T extends Node> T replace(T node) {
+		parent.replaceChild(this, node);
+		node.parent = parent;
+		return node;
+	}
+
+	/* replaces the child oldChild with newChild; leaves have no children */
+	void replaceChild(Node oldChild, Node newChild) {
+		throw new IllegalStateException("Node " + getClass().getSimpleName() + " has no children");
+	}
+}
@@ -0,0 +1,288 @@
+package visitors.specialization;
+
+import static visitors.typechecking.PrimtType.BOOL;
+import static visitors.typechecking.PrimtType.INT;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import parser.ast.Exp;
+import parser.ast.ExpSeq;
+import parser.ast.Ident;
+import parser.ast.Prog;
+import parser.ast.Stmt;
+import parser.ast.StmtSeq;
+import visitors.Visitor;
+import visitors.resolution.Resolver;
+import visitors.specialization.ExpNodes.*;
+import visitors.specialization.StmtNodes.*;
+import visitors.typechecking.ListType;
+import visitors.typechecking.OptType;
+import visitors.typechecking.Type;
+
+/*
+ * builds the tree of self-specializing nodes of a type checked program;
+ * operators, variables and statements whose execution depends on the type of
+ * their operands start uninitialized, and the first time they are executed
+ * they replace themselves in their parent with the node specialized for the
+ * values they observe, such as + with AddIntInt or == on lists with
+ * EqualList, so that the calls in hot loops have a single target
+ *
+ * the observed values are checked against the static types of the operands,
+ * which are tracked as in the bytecode compiler: the type of a variable is
+ * the one of its most recently built declaration
+ */
+
+public class NodeBuilder implements Visitor<Node> {
+
+	private Type[][] slotTypes = new Type[1][];
+	private int[] frameSizes = new int[1];
+
+	private Type type; // the static type of the last built expression
+
+	private List<ExpNode> elements; // the elements of the list literal being built
+
+	/* the tree of the program, printing on p */
+	public static Runnable build(Prog prog, PrintWriter p) {
+		prog.accept(new Resolver());
+		NodeBuilder builder = new NodeBuilder();
+		StmtNode body = (StmtNode) prog.accept(builder);
+		return new Root(body, new Frames(builder.frameSizes, p));
+	}
+
+	// auxiliary methods
+
+	private ExpNode build(Exp exp) {
+		return (ExpNode) exp.accept(this);
+	}
+
+	private StmtNode build(StmtSeq stmtSeq) {
+		return (StmtNode) stmtSeq.accept(this);
+	}
+
+	private Type slotType(Ident ident) {
+		return slotTypes[ident.getDepth()][ident.getSlot()];
+	}
+
+	private void declare(Ident ident, Type type) {
+		int depth = ident.getDepth(), slot = ident.getSlot();
+		if (depth >= frameSizes.length) {
+			frameSizes = Arrays.copyOf(frameSizes, depth + 1);
+			slotTypes = Arrays.copyOf(slotTypes, depth + 1);
+		}
+		if (slot >= frameSizes[depth]) {
+			frameSizes[depth] = slot + 1;
+			slotTypes[depth] = Arrays.copyOf(slotTypes[depth] == null ? new Type[0] : slotTypes[depth], slot + 1);
+		}
+		slotTypes[depth][slot] = type;
+	}
+
+	private static StmtNode sequence(List<StmtNode> stmts) {
+		return stmts.size() == 1 ? stmts.get(0) : new Seq(stmts.toArray(new StmtNode[0]));
+	}
+
+	@Override
+	public Node visitProg(StmtSeq stmtSeq) {
+		return build(stmtSeq);
+	}
+
+	// statements
+
+	@Override
+	public Node visitAssignStmt(Ident ident, Exp exp) {
+		return new UninitializedWrite(build(exp), ident.getDepth(), ident.getSlot(), slotType(ident));
+	}
+
+	@Override
+	public Node visitVarStmt(Ident ident, Exp exp) {
+		ExpNode value = build(exp);
+		declare(ident, type);
+		return new UninitializedWrite(value, ident.getDepth(), ident.getSlot(), type);
+	}
+
+	@Override
+	public Node visitPrintStmt(Exp exp) {
+		ExpNode value = build(exp);
+		return new UninitializedPrint(value, type);
+	}
+
+	@Override
+	public Node visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
+		ExpNode list = build(exp);
+		Type elemType = type.getListElemType();
+		declare(ident, elemType);
+		return new UninitializedFor(list, ident.getDepth(), ident.getSlot(), elemType, build(block));
+	}
+
+	@Override
+	public Node visitIfStmt(Exp exp, StmtSeq block) {
+		return new If(build(exp), build(block), null);
+	}
+
+	@Override
+	public Node visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
+		ExpNode cond = build(exp);
+		StmtNode then = build(block);
+		return new If(cond, then, build(option));
+	}
+
+	@Override
+	public Node visitDoStmt(StmtSeq stmt, Exp exp) {
+		StmtNode block = build(stmt);
+		return new Do(block, build(exp));
+	}
+
+	// sequences
+
+	@Override
+	public Node visitSingleStmt(Stmt stmt) {
+		return stmt.accept(this);
+	}
+
+	@Override
+	public Node visitMoreStmt(Stmt first, StmtSeq rest) {
+		StmtNode head = (StmtNode) first.accept(this);
+		return sequence(List.of(head, build(rest)));
+	}
+
+	@Override
+	public Node visitManyStmt(List<Stmt> stmts) {
+		List<StmtNode> nodes = new ArrayList<>(stmts.size());
+		for (Stmt stmt : stmts)
+			nodes.add((StmtNode) stmt.accept(this));
+		return sequence(nodes);
+	}
+
+	// the elements of list literals are collected by visitListLiteral
+
+	@Override
+	public Node visitSingleExp(Exp exp) {
+		elements.add(build(exp));
+		return null;
+	}
+
+	@Override
+	public Node visitMoreExp(Exp first, ExpSeq rest) {
+		elements.add(build(first));
+		rest.accept(this);
+		return null;
+	}
+
+	@Override
+	public Node visitManyExp(List<Exp> exps) {
+		for (Exp exp : exps)
+			elements.add(build(exp));
+		return null;
+	}
+
+	// expressions
+
+	@Override
+	public Node visitAdd(Exp left, Exp right) {
+		ExpNode l = build(left);
+		Node node = new UninitializedAdd(l, build(right), type);
+		type = INT;
+		return node;
+	}
+
+	@Override
+	public Node visitMul(Exp left, Exp right) {
+		ExpNode l = build(left);
+		Node node = new UninitializedMul(l, build(right), type);
+		type = INT;
+		return node;
+	}
+
+	@Override
+	public Node visitPrefix(Exp left, Exp right) {
+		ExpNode l = build(left);
+		return new Prefix(l, build(right));
+	}
+
+	@Override
+	public Node visitAnd(Exp left, Exp right) {
+		ExpNode l = build(left);
+		Node node = new AndBool(l, build(right));
+		type = BOOL;
+		return node;
+	}
+
+	@Override
+	public Node visitEqual(Exp left, Exp right) {
+		ExpNode l = build(left);
+		Node node = new UninitializedEqual(l, build(right), type);
+		type = BOOL;
+		return node;
+	}
+
+	@Override
+	public Node visitSign(Exp exp) {
+		Node node = new NegInt(build(exp));
+		type = INT;
+		return node;
+	}
+
+	@Override
+	public Node visitNot(Exp exp) {
+		Node node = new NotBool(build(exp));
+		type = BOOL;
+		return node;
+	}
+
+	@Override
+	public Node visitOptLiteral(Exp exp) {
+		Node node = new Opt(build(exp));
+		type = new OptType(type);
+		return node;
+	}
+
+	@Override
+	public Node visitEmpty(Exp exp) {
+		return new Empty(build(exp));
+	}
+
+	@Override
+	public Node visitGet(Exp exp) {
+		Node node = new Get(build(exp));
+		type = type.getOptElemType();
+		return node;
+	}
+
+	@Override
+	public Node visitDef(Exp exp) {
+		Node node = new Def(build(exp));
+		type = BOOL;
+		return node;
+	}
+
+	@Override
+	public Node visitListLiteral(ExpSeq exps) {
+		List<ExpNode> outer = elements;
+		elements = new ArrayList<>();
+		exps.accept(this);
+		Node node = new ListNode(elements.toArray(new ExpNode[0]));
+		elements = outer;
+		type = new ListType(type);
+		return node;
+	}
+
+	@Override
+	public Node visitIntLiteral(int value) {
+		type = INT;
+		return new IntConstant(value);
+	}
+
+	@Override
+	public Node visitBoolLiteral(Boolean value) {
+		type = BOOL;
+		return new BoolConstant(value);
+	}
+
+	@Override
+	public Node visitIdent(Ident ident) {
+		type = slotType(ident);
+		return new UninitializedRead(ident.getDepth(), ident.getSlot(), type);
+	}
+}
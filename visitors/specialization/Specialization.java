@@ -0,0 +1,47 @@
+package visitors.specialization;
+
+import static visitors.typechecking.PrimtType.BOOL;
+import static visitors.typechecking.PrimtType.INT;
+
+import visitors.evaluation.BoolValue;
+import visitors.evaluation.IntValue;
+import visitors.evaluation.ListValue;
+import visitors.evaluation.OptValue;
+import visitors.evaluation.Value;
+import visitors.typechecking.ListType;
+import visitors.typechecking.OptType;
+import visitors.typechecking.Type;
+
+/*
+ * checks the values observed by uninitialized nodes against the static types
+ * computed by the type checker; since well typed programs never observe a
+ * value of another type, specialized nodes need no way back
+ */
+
+final class Specialization {
+
+	private Specialization() {
+	}
+
+	static boolean isInt(Value value) {
+		return value instanceof IntValue;
+	}
+
+	static boolean isBool(Value value) {
+		return value instanceof BoolValue;
+	}
+
+	static boolean isList(Value value) {
+		return value instanceof ListValue;
+	}
+
+	/* throws if value does not have the static type */
+	static Value check(Value value, Type type) {
+		boolean agrees = type == INT ? isInt(value)
+				: type == BOOL ? isBool(value)
+						: type instanceof ListType ? isList(value) : type instanceof OptType && value instanceof OptValue;
+		if (!agrees)
+			throw new IllegalStateException("Observed value " + value + " does not have static type " + type);
+		return value;
+	}
+}
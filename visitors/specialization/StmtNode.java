@@ -0,0 +1,5 @@
+package visitors.specialization;
+
+abstract class StmtNode extends Node {
+	abstract void execute(Frames frames);
+}
@@ -0,0 +1,369 @@
+package visitors.specialization;
+
+import static visitors.specialization.Specialization.check;
+import static visitors.typechecking.PrimtType.BOOL;
+import static visitors.typechecking.PrimtType.INT;
+
+import java.util.Iterator;
+
+import visitors.evaluation.Value;
+import visitors.typechecking.Type;
+
+/*
+ * the statement nodes; as for expressions, uninitialized nodes replace
+ * themselves the first time they are executed
+ */
+
+final class StmtNodes {
+
+	private StmtNodes() {
+	}
+
+	static final class Seq extends StmtNode {
+		private final StmtNode[] stmts;
+
+		Seq(StmtNode[] stmts) {
+			this.stmts = stmts;
+			for (StmtNode stmt : stmts)
+				adopt(stmt);
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			for (int i = 0; i < stmts.length; i++)
+				if (stmts[i] == oldChild)
+					stmts[i] = (StmtNode) newChild;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			for (StmtNode stmt : stmts)
+				stmt.execute(frames);
+		}
+	}
+
+	abstract static class WithExp extends StmtNode {
+		ExpNode exp;
+
+		WithExp(ExpNode exp) {
+			this.exp = adopt(exp);
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			if (exp == oldChild)
+				exp = (ExpNode) newChild;
+		}
+	}
+
+	// printing
+
+	static final class UninitializedPrint extends WithExp {
+		private final Type type;
+
+		UninitializedPrint(ExpNode exp, Type type) {
+			super(exp);
+			this.type = type;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			Value value = check(exp.executeValue(frames), type);
+			replace(type == INT ? new PrintInt(exp) : type == BOOL ? new PrintBool(exp) : new PrintValue(exp));
+			frames.p.println(value);
+		}
+	}
+
+	static final class PrintInt extends WithExp {
+		PrintInt(ExpNode exp) {
+			super(exp);
+		}
+
+		@Override
+		void execute(Frames frames) {
+			frames.p.println(exp.executeInt(frames));
+		}
+	}
+
+	static final class PrintBool extends WithExp {
+		PrintBool(ExpNode exp) {
+			super(exp);
+		}
+
+		@Override
+		void execute(Frames frames) {
+			frames.p.println(exp.executeBool(frames));
+		}
+	}
+
+	static final class PrintValue extends WithExp {
+		PrintValue(ExpNode exp) {
+			super(exp);
+		}
+
+		@Override
+		void execute(Frames frames) {
+			frames.p.println(exp.executeValue(frames));
+		}
+	}
+
+	// declarations and assignments, which store into the same slots
+
+	/* stores into the slot of a variable, and replaces itself with a store into the frame of the run */
+	static final class UninitializedWrite extends WithExp {
+		private final int depth, slot;
+		private final Type type;
+
+		UninitializedWrite(ExpNode exp, int depth, int slot, Type type) {
+			super(exp);
+			this.depth = depth;
+			this.slot = slot;
+			this.type = type;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			Value value = check(exp.executeValue(frames), type);
+			if (type == INT) {
+				replace(new WriteInt(exp, frames.ints[depth], slot));
+				frames.ints[depth][slot] = value.asInt();
+			} else if (type == BOOL) {
+				replace(new WriteBool(exp, frames.ints[depth], slot));
+				frames.ints[depth][slot] = value.asBool() ? 1 : 0;
+			} else {
+				replace(new WriteValue(exp, frames.values[depth], slot));
+				frames.values[depth][slot] = value;
+			}
+		}
+	}
+
+	static final class WriteInt extends WithExp {
+		private final int[] frame;
+		private final int slot;
+
+		WriteInt(ExpNode exp, int[] frame, int slot) {
+			super(exp);
+			this.frame = frame;
+			this.slot = slot;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			frame[slot] = exp.executeInt(frames);
+		}
+	}
+
+	static final class WriteBool extends WithExp {
+		private final int[] frame;
+		private final int slot;
+
+		WriteBool(ExpNode exp, int[] frame, int slot) {
+			super(exp);
+			this.frame = frame;
+			this.slot = slot;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			frame[slot] = exp.executeBool(frames) ? 1 : 0;
+		}
+	}
+
+	static final class WriteValue extends WithExp {
+		private final Value[] frame;
+		private final int slot;
+
+		WriteValue(ExpNode exp, Value[] frame, int slot) {
+			super(exp);
+			this.frame = frame;
+			this.slot = slot;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			frame[slot] = exp.executeValue(frames);
+		}
+	}
+
+	// control flow
+
+	static final class If extends WithExp {
+		private StmtNode block, option; // option is null for if without else
+
+		If(ExpNode exp, StmtNode block, StmtNode option) {
+			super(exp);
+			this.block = adopt(block);
+			this.option = option == null ? null : adopt(option);
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			if (block == oldChild)
+				block = (StmtNode) newChild;
+			else if (option == oldChild)
+				option = (StmtNode) newChild;
+			else
+				super.replaceChild(oldChild, newChild);
+		}
+
+		@Override
+		void execute(Frames frames) {
+			if (exp.executeBool(frames))
+				block.execute(frames);
+			else if (option != null)
+				option.execute(frames);
+		}
+	}
+
+	static final class Do extends WithExp {
+		private StmtNode block;
+
+		Do(StmtNode block, ExpNode exp) {
+			super(exp);
+			this.block = adopt(block);
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			if (block == oldChild)
+				block = (StmtNode) newChild;
+			else
+				super.replaceChild(oldChild, newChild);
+		}
+
+		@Override
+		void execute(Frames frames) {
+			do
+				block.execute(frames);
+			while (exp.executeBool(frames));
+		}
+	}
+
+	/* iterates over a list, and replaces itself with a loop storing into the frame of the run */
+	static final class UninitializedFor extends WithExp {
+		private StmtNode block;
+		private final int depth, slot;
+		private final Type elemType;
+
+		UninitializedFor(ExpNode exp, int depth, int slot, Type elemType, StmtNode block) {
+			super(exp);
+			this.depth = depth;
+			this.slot = slot;
+			this.elemType = elemType;
+			this.block = adopt(block);
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			if (block == oldChild)
+				block = (StmtNode) newChild;
+			else
+				super.replaceChild(oldChild, newChild);
+		}
+
+		@Override
+		void execute(Frames frames) {
+			StmtNode loop = elemType == INT ? new ForInt(exp, frames.ints[depth], slot, block)
+					: elemType == BOOL ? new ForBool(exp, frames.ints[depth], slot, block)
+							: new ForValue(exp, frames.values[depth], slot, block);
+			replace(loop).execute(frames);
+		}
+	}
+
+	abstract static class For extends WithExp {
+		StmtNode block;
+		final int slot;
+
+		For(ExpNode exp, int slot, StmtNode block) {
+			super(exp);
+			this.slot = slot;
+			this.block = adopt(block);
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			if (block == oldChild)
+				block = (StmtNode) newChild;
+			else
+				super.replaceChild(oldChild, newChild);
+		}
+	}
+
+	static final class ForInt extends For {
+		private final int[] frame;
+
+		ForInt(ExpNode exp, int[] frame, int slot, StmtNode block) {
+			super(exp, slot, block);
+			this.frame = frame;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			for (Iterator<Value> it = exp.executeValue(frames).asList().iterator(); it.hasNext();) {
+				frame[slot] = it.next().asInt();
+				block.execute(frames);
+			}
+		}
+	}
+
+	static final class ForBool extends For {
+		private final int[] frame;
+
+		ForBool(ExpNode exp, int[] frame, int slot, StmtNode block) {
+			super(exp, slot, block);
+			this.frame = frame;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			for (Iterator<Value> it = exp.executeValue(frames).asList().iterator(); it.hasNext();) {
+				frame[slot] = it.next().asBool() ? 1 : 0;
+				block.execute(frames);
+			}
+		}
+	}
+
+	static final class ForValue extends For {
+		private final Value[] frame;
+
+		ForValue(ExpNode exp, Value[] frame, int slot, StmtNode block) {
+			super(exp, slot, block);
+			this.frame = frame;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			for (Value value : exp.executeValue(frames).asList()) {
+				frame[slot] = value;
+				block.execute(frames);
+			}
+		}
+	}
+
+	/* the root of the tree, which owns the frames of the run */
+	static final class Root extends StmtNode implements Runnable {
+		private StmtNode body;
+		private final Frames frames;
+
+		Root(StmtNode body, Frames frames) {
+			this.body = adopt(body);
+			this.frames = frames;
+		}
+
+		@Override
+		void replaceChild(Node oldChild, Node newChild) {
+			if (body == oldChild)
+				body = (StmtNode) newChild;
+		}
+
+		@Override
+		void execute(Frames frames) {
+			body.execute(frames);
+		}
+
+		@Override
+		public void run() {
+			execute(frames);
+		}
+	}
+}
@@ -2,23 +2,31 @@ package visitors.typechecking;
 
 import static visitors.typechecking.PrimtType.*;
 
+import java.util.List;
+
 import environments.EnvironmentException;
-import environments.GenEnvironment;
+import environments.PooledEnvironment;
 import parser.ast.Exp;
 import parser.ast.ExpSeq;
 import parser.ast.Ident;
-import parser.ast.SimpleIdent;
 import parser.ast.Stmt;
 import parser.ast.StmtSeq;
 import visitors.Visitor;
 
 public class TypeCheck implements Visitor<Type> {
 
-	private final GenEnvironment<Type> env = new GenEnvironment<>();
+	private final PooledEnvironment<Type> env = new PooledEnvironment<>();
+
+	/* checks an expression, recording its type in the node */
+	private Type typeOf(Exp exp) {
+		Type type = exp.accept(this);
+		exp.setType(type);
+		return type;
+	}
 
 	private void checkBinOp(Exp left, Exp right, Type type) {
-		type.checkEqual(left.accept(this));
-		type.checkEqual(right.accept(this));
+		type.checkEqual(typeOf(left));
+		type.checkEqual(typeOf(right));
 	}
 
 	// static semantics for programs; no value returned by the visitor
@@ -33,18 +41,30 @@ public class TypeCheck implements Visitor<Type> {
 		return null;
 	}
 
+	/*
+	 * static semantics of a single top-level statement, for streaming execution;
+	 * the environment is kept between calls
+	 */
+	public void checkTopStmt(Stmt stmt) {
+		try {
+			stmt.accept(this);
+		} catch (EnvironmentException e) { // undefined variable
+			throw new TypecheckerException(e);
+		}
+	}
+
 	// static semantics for statements; no value returned by the visitor
 
 	@Override
 	public Type visitAssignStmt(Ident ident, Exp exp) {
 		Type found = env.lookup(ident);
-		found.checkEqual(exp.accept(this));
+		found.checkEqual(typeOf(exp));
 		return null;
 	}
 
 	@Override
 	public Type visitForEachStmt(Ident ident, Exp exp, StmtSeq block) {
-		Type ty = exp.accept(this).getListElemType();
+		Type ty = typeOf(exp).getListElemType();
 		env.enterLevel();
 		env.dec(ident, ty);
 		block.accept(this);
@@ -54,13 +74,13 @@ public class TypeCheck implements Visitor<Type> {
 
 	@Override
 	public Type visitPrintStmt(Exp exp) {
-		exp.accept(this);
+		typeOf(exp);
 		return null;
 	}
 
 	@Override
 	public Type visitVarStmt(Ident ident, Exp exp) {
-		env.dec(ident, exp.accept(this));
+		env.dec(ident, typeOf(exp));
 		return null;
 	}
 
@@ -80,6 +100,13 @@ public class TypeCheck implements Visitor<Type> {
 		return null;
 	}
 
+	@Override
+	public Type visitManyStmt(List<Stmt> stmts) {
+		for (Stmt stmt : stmts)
+			stmt.accept(this);
+		return null;
+	}
+
 	// static semantics of expressions; a type is returned by the visitor
 
 	@Override
@@ -106,18 +133,18 @@ public class TypeCheck implements Visitor<Type> {
 
 	@Override
 	public Type visitPrefix(Exp left, Exp right) {
-		Type elemType = left.accept(this);
-		return new ListType(elemType).checkEqual(right.accept(this));
+		Type elemType = typeOf(left);
+		return new ListType(elemType).checkEqual(typeOf(right));
 	}
 
 	@Override
 	public Type visitSign(Exp exp) {
-		return INT.checkEqual(exp.accept(this));
+		return INT.checkEqual(typeOf(exp));
 	}
 
 	@Override
-	public Type visitIdent(String name) {
-		return env.lookup(new SimpleIdent(name));
+	public Type visitIdent(Ident ident) {
+		return env.lookup(ident);
 	}
 
 	// static semantics of sequences of expressions
@@ -125,18 +152,30 @@ public class TypeCheck implements Visitor<Type> {
 
 	@Override
 	public Type visitSingleExp(Exp exp) {
-		return exp.accept(this);
+		return typeOf(exp);
 	}
 
 	@Override
 	public Type visitMoreExp(Exp first, ExpSeq rest) {
-		Type found = first.accept(this);
+		Type found = typeOf(first);
 		return found.checkEqual(rest.accept(this));
 	}
+
+	// types are compared from the last one, as for the equivalent MoreExp chain
+	@Override
+	public Type visitManyExp(List<Exp> exps) {
+		Type[] found = new Type[exps.size()];
+		for (int i = 0; i < found.length; i++)
+			found[i] = typeOf(exps.get(i));
+		Type type = found[found.length - 1];
+		for (int i = found.length - 2; i >= 0; i--)
+			type = found[i].checkEqual(type);
+		return type;
+	}
 	
 	@Override
 	public Type visitIfStmt(Exp exp, StmtSeq block) {
-		BOOL.checkEqual(exp.accept(this));
+		BOOL.checkEqual(typeOf(exp));
 		env.enterLevel();
 		block.accept(this);
 		env.exitLevel();
@@ -144,7 +183,7 @@ public class TypeCheck implements Visitor<Type> {
 	}
 	@Override
 	public Type visitIfElseStmt(Exp exp, StmtSeq block, StmtSeq option) {
-		BOOL.checkEqual(exp.accept(this));
+		BOOL.checkEqual(typeOf(exp));
 		env.enterLevel();
 			block.accept(this);
 		env.exitLevel();
@@ -156,7 +195,7 @@ public class TypeCheck implements Visitor<Type> {
 
 	@Override
 	public Type visitDoStmt(StmtSeq stmt, Exp exp) {
-		BOOL.checkEqual(exp.accept(this));
+		BOOL.checkEqual(typeOf(exp));
 		env.enterLevel();
 			stmt.accept(this);
 		env.exitLevel();
@@ -176,38 +215,38 @@ public class TypeCheck implements Visitor<Type> {
 
 	@Override
 	public Type visitEqual(Exp left, Exp right) {
-		Type expected = right.accept(this);
-		left.accept(this).checkEqual(expected);
+		Type expected = typeOf(right);
+		typeOf(left).checkEqual(expected);
 		return BOOL;
 	}
 
 	@Override
 	public Type visitNot(Exp exp) {
-		return BOOL.checkEqual(exp.accept(this));
+		return BOOL.checkEqual(typeOf(exp));
 	}
 
 	@Override
 	public Type visitEmpty(Exp exp) {
-		Type expected=exp.accept(this);
+		Type expected=typeOf(exp);
 		expected.getOptElemType();
 		return expected;
 	}
 
 	@Override
 	public Type visitOptLiteral(Exp exp) {
-		return new OptType(exp.accept(this));
+		return new OptType(typeOf(exp));
 	}
 
 	@Override
 	public Type visitGet(Exp exp) {
-		Type expected=exp.accept(this);
+		Type expected=typeOf(exp);
 		return expected.getOptElemType();
 		
 	}
 
 	@Override
 	public Type visitDef(Exp exp) {
-		exp.accept(this).getOptElemType();
+		typeOf(exp).getOptElemType();
 		return BOOL;
 	}
 